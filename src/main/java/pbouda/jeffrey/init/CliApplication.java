@@ -1,6 +1,12 @@
 package pbouda.jeffrey.init;
 
+import pbouda.jeffrey.init.command.FlamegraphCommand;
+import pbouda.jeffrey.init.command.HeapDumpCommand;
 import pbouda.jeffrey.init.command.InitCommand;
+import pbouda.jeffrey.init.command.MetricsCommand;
+import pbouda.jeffrey.init.command.SliceCommand;
+import pbouda.jeffrey.init.command.SyncCommand;
+import pbouda.jeffrey.init.command.VerifyCommand;
 import picocli.CommandLine;
 import picocli.CommandLine.Command;
 
@@ -8,6 +14,12 @@ import picocli.CommandLine.Command;
         name = "",
         subcommands = {
                 InitCommand.class,
+                HeapDumpCommand.class,
+                SyncCommand.class,
+                VerifyCommand.class,
+                MetricsCommand.class,
+                SliceCommand.class,
+                FlamegraphCommand.class,
         },
         mixinStandardHelpOptions = true,
         description = "Jeffrey CLI Application to simplify the setup and maintenance",
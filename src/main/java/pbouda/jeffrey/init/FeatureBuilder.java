@@ -4,13 +4,15 @@ import java.nio.file.Path;
 
 public class FeatureBuilder {
 
+    public static final String HEAP_DUMP_FILENAME = "heap-dump.hprof";
+
     /* Performance data JVM options */
     private static final String PERF_DATA_OPTIONS = "-XX:+UsePerfData -XX:PerfDataSaveFile="
             + Path.of(Replacements.CURRENT_SESSION, "perf-counters.hsperfdata");
 
     /* Heap dump JVM options */
     private static final String HEAP_DUMP_OPTIONS = "-XX:+HeapDumpOnOutOfMemoryError "
-            + "-XX:HeapDumpPath=" + Path.of(Replacements.CURRENT_SESSION, "heap-dump.hprof") + " "
+            + "-XX:HeapDumpPath=" + Path.of(Replacements.CURRENT_SESSION, HEAP_DUMP_FILENAME) + " "
             + "-XX:+CrashOnOutOfMemoryError "
             + "-XX:ErrorFile=" + Path.of(Replacements.CURRENT_SESSION, "hs-err.log");
 
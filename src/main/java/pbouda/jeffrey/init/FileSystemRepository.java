@@ -84,4 +84,17 @@ public class FileSystemRepository {
         }
         return Optional.empty();
     }
+
+    public Optional<RemoteSession> findSession(Path sessionPath) {
+        Path sessionInfoFile = sessionPath.resolve(SESSION_INFO_FILENAME);
+        if (Files.exists(sessionInfoFile)) {
+            try {
+                String jsonContent = Files.readString(sessionInfoFile);
+                return Optional.of(Json.fromString(jsonContent, RemoteSession.class));
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to read session info from: " + sessionInfoFile + ", error: " + e.getMessage());
+            }
+        }
+        return Optional.empty();
+    }
 }
@@ -19,6 +19,7 @@
 package pbouda.jeffrey.init;
 
 import java.io.IOException;
+import java.nio.channels.FileChannel;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
@@ -43,4 +44,25 @@ public abstract class FileSystemUtils {
             throw new RuntimeException("Cannot recognize whether the file is hidden or not", e);
         }
     }
+
+    /**
+     * Copies the given part of the source file to the current position of the target.
+     *
+     * @param source   channel of the source file
+     * @param target   channel the data is appended to
+     * @param position position of the first byte in the source
+     * @param count    number of bytes to copy
+     * @throws IOException if the source file ends before all the bytes are copied (e.g. it was truncated)
+     */
+    public static void transfer(FileChannel source, FileChannel target, long position, long count) throws IOException {
+        long current = position;
+        long end = position + count;
+        while (current < end) {
+            long transferred = source.transferTo(current, end - current, target);
+            if (transferred <= 0) {
+                throw new IOException("Unexpected end of the file: expected_size=" + end + " current_size=" + source.size());
+            }
+            current += transferred;
+        }
+    }
 }
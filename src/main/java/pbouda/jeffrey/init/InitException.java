@@ -0,0 +1,36 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init;
+
+/**
+ * Thrown when the workspace, project or session cannot be initialized (e.g. directories or files
+ * cannot be created, profiler settings cannot be resolved).
+ */
+public class InitException extends RuntimeException {
+
+    private static final long serialVersionUID = 1L;
+
+    public InitException(String message) {
+        super(message);
+    }
+
+    public InitException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
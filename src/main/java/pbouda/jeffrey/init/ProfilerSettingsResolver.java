@@ -11,21 +11,30 @@ import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.Comparator;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
+/**
+ * Resolves the profiler settings of the project. The resolver is thread-safe, the settings files are never
+ * modified (a new generation is always created as a new file), therefore, the newest parsed settings file
+ * of every settings directory is cached until a newer generation appears.
+ */
 public class ProfilerSettingsResolver {
 
+    public static final String WORKSPACE_SETTINGS_DIR = ".settings";
+
     private static final String WORKSPACE_SETTINGS_PREFIX = "settings-";
-    private static final String WORKSPACE_SETTINGS_DIR = ".settings";
 
     private static final DateTimeFormatter TIMESTAMP_FORMATTER =
             DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HHmmssSSSSSS").withZone(ZoneOffset.UTC);
 
     private static final Comparator<Path> TIMESTAMP_FILE_COMPARATOR =
-            Comparator.comparing((Path path) -> {
-                String filename = path.toString();
-                String substring = filename.substring(filename.indexOf('-') + 1, filename.lastIndexOf('.'));
-                return Instant.from(TIMESTAMP_FORMATTER.parse(substring));
-            }).reversed();
+            Comparator.comparing(ProfilerSettingsResolver::settingsTimestamp).reversed();
+
+    private record CachedSettings(Path settingsFile, RemoteWorkspaceSettings settings) {
+    }
+
+    private final ConcurrentMap<Path, CachedSettings> settingsCache = new ConcurrentHashMap<>();
 
     public String resolve(
             String profilerPath,
@@ -56,13 +65,17 @@ public class ProfilerSettingsResolver {
                 .replace(Replacements.CURRENT_SESSION, sessionPath.toString());
     }
 
-    private static String resolveJeffreyProfilerConfig(Path workspacePath, String projectName) {
+    private String resolveJeffreyProfilerConfig(Path workspacePath, String projectName) {
         try {
             Path settingsDir = Files.createDirectories(workspacePath.resolve(WORKSPACE_SETTINGS_DIR));
             List<Path> settingsFiles = getSettingsFiles(settingsDir);
             if (!settingsFiles.isEmpty()) {
-                RemoteWorkspaceSettings settings = readSettings(settingsFiles.getFirst());
-                ProfilerSettings profilerSettings = settings.profiler();
+                Path newestFile = settingsFiles.getFirst();
+                CachedSettings cached = settingsCache.compute(settingsDir, (dir, current) ->
+                        current != null && current.settingsFile().equals(newestFile)
+                                ? current
+                                : new CachedSettings(newestFile, readSettings(newestFile)));
+                ProfilerSettings profilerSettings = cached.settings().profiler();
                 return profilerSettings.projectSettings()
                         .getOrDefault(projectName, profilerSettings.defaultSettings());
             } else {
@@ -82,7 +95,10 @@ public class ProfilerSettingsResolver {
         }
     }
 
-    private static List<Path> getSettingsFiles(Path settingsDir) {
+    /**
+     * Returns the settings files in the settings directory of the workspace, the newest one first.
+     */
+    public static List<Path> getSettingsFiles(Path settingsDir) {
         return FileSystemUtils.allFilesInDirectory(settingsDir).stream()
                 .filter(path -> {
                     String filename = path.getFileName().toString();
@@ -91,4 +107,13 @@ public class ProfilerSettingsResolver {
                 .sorted(TIMESTAMP_FILE_COMPARATOR)
                 .toList();
     }
+
+    /**
+     * Parses the timestamp of the generation of the settings file from its filename.
+     */
+    public static Instant settingsTimestamp(Path settingsFile) {
+        String filename = settingsFile.getFileName().toString();
+        String substring = filename.substring(filename.indexOf('-') + 1, filename.lastIndexOf('.'));
+        return Instant.from(TIMESTAMP_FORMATTER.parse(substring));
+    }
 }
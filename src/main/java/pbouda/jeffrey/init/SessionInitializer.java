@@ -0,0 +1,289 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init;
+
+import pbouda.jeffrey.init.metrics.InitLatencyLog;
+import pbouda.jeffrey.init.model.InitRequest;
+import pbouda.jeffrey.init.model.InitResult;
+import pbouda.jeffrey.init.model.RemoteProject;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * Initializes the project (if it does not exist yet) and a new session in the workspace, and creates the ENV file
+ * with the variables to source in the shell. It's the programmatic counterpart of the {@code init} command
+ * to be embedded into launchers and tests without forking a new JVM.
+ * <p>
+ * The initializer is thread-safe and is supposed to be shared. Concurrent initializations of the same project
+ * are serialized only when the project is looked up and created, the sessions are created concurrently.
+ */
+public class SessionInitializer {
+
+    public static final String WORKSPACES_DIR_NAME = "workspaces";
+    public static final String ENV_FILE_NAME = ".env";
+
+    public static final String JEFFREY_HOME_PROP = "JEFFREY_HOME";
+    public static final String JEFFREY_WORKSPACES_PROP = "JEFFREY_WORKSPACES";
+    public static final String JEFFREY_WORKSPACE_PROP = "JEFFREY_CURRENT_WORKSPACE";
+    public static final String JEFFREY_SESSION_PROP = "JEFFREY_CURRENT_SESSION";
+    public static final String JEFFREY_PROJECT_PROP = "JEFFREY_CURRENT_PROJECT";
+    public static final String JEFFREY_FILE_PATTERN_PROP = "JEFFREY_FILE_PATTERN";
+    public static final String JEFFREY_PROFILER_CONFIG_PROP = "JEFFREY_PROFILER_CONFIG";
+
+    /* Messages of the rejected requests, the CLI maps them to its options */
+    public static final String MISSING_WORKSPACES_MESSAGE = "Either Jeffrey home or workspaces directory must be specified";
+    public static final String CONFLICTING_WORKSPACES_MESSAGE = "Cannot specify both Jeffrey home and workspaces directory";
+    public static final String MISSING_WORKSPACE_ID_MESSAGE = "Workspace ID must be specified";
+    public static final String MISSING_PROJECT_NAME_MESSAGE = "Project name must be specified";
+    public static final String INVALID_PROJECT_NAME_MESSAGE = "Project name can only contain alphanumeric characters, underscores, and dashes";
+    public static final String MISSING_PROJECT_LABEL_MESSAGE = "Project label must be specified";
+
+    private static final String DEFAULT_FILE_TEMPLATE = "profile-%t.jfr";
+    private static final Pattern PROJECT_NAME_PATTERN = Pattern.compile("^[a-zA-Z0-9_-]+$");
+
+    private final Clock clock;
+    private final FileSystemRepository repository;
+    private final ProfilerSettingsResolver profilerSettingsResolver = new ProfilerSettingsResolver();
+    private final ConcurrentMap<Path, Object> projectLocks = new ConcurrentHashMap<>();
+
+    public SessionInitializer(Clock clock) {
+        this.clock = clock;
+        this.repository = new FileSystemRepository(clock);
+    }
+
+    /**
+     * Initializes a new session of the project described by the request.
+     *
+     * @param request description of the workspace, project and session features
+     * @return paths, IDs, profiler settings and variables of the new session
+     * @throws IllegalArgumentException if the request is invalid
+     * @throws InitException            if the project or session cannot be created
+     */
+    public InitResult initialize(InitRequest request) {
+        long startedAt = System.nanoTime();
+        validate(request);
+
+        try {
+            InitResult result = createSession(request);
+            recordLatency(result.workspacePath(), Duration.ofNanos(System.nanoTime() - startedAt));
+            return result;
+        } catch (InitException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new InitException(e.getMessage(), e);
+        }
+    }
+
+    private InitResult createSession(InitRequest request) {
+        boolean useJeffreyHome = request.jeffreyHome() != null;
+
+        Path jeffreyHome = null;
+        Path workspacesPath;
+        if (useJeffreyHome) {
+            jeffreyHome = createDirectories(request.jeffreyHome());
+            workspacesPath = createDirectories(jeffreyHome.resolve(WORKSPACES_DIR_NAME));
+        } else {
+            workspacesPath = createDirectories(request.workspacesDir());
+        }
+
+        Path workspacePath = createDirectories(workspacesPath.resolve(request.workspaceId()));
+        Path projectPath = workspacePath.resolve(request.projectName());
+
+        String projectId;
+        boolean projectCreated = false;
+        synchronized (projectLock(projectPath)) {
+            Optional<RemoteProject> projectOpt = repository.findProject(projectPath);
+            if (projectOpt.isPresent()) {
+                projectId = projectOpt.get().projectId();
+            } else {
+                projectId = IDGenerator.generate();
+                createDirectories(projectPath);
+                repository.addProject(
+                        projectId,
+                        request.projectName(),
+                        request.projectLabel(),
+                        request.workspaceId(),
+                        request.repositoryType(),
+                        request.attributes(),
+                        projectPath);
+                projectCreated = true;
+            }
+        }
+
+        String sessionId = IDGenerator.generate();
+        Path sessionPath = createDirectories(projectPath.resolve(sessionId));
+
+        String features = new FeatureBuilder()
+                .setHeapDumpEnabled(request.heapDumpEnabled())
+                .setPerfCountersEnabled(request.perfCountersEnabled())
+                .build(sessionPath);
+
+        String profilerSettings = profilerSettingsResolver.resolve(
+                request.profilerPath(),
+                request.profilerConfig(),
+                workspacePath,
+                request.projectName(),
+                sessionPath,
+                features);
+
+        repository.addSession(
+                sessionId,
+                projectId,
+                request.workspaceId(),
+                workspacePath.relativize(sessionPath),
+                useJeffreyHome ? null : workspacesPath,
+                sessionPath,
+                profilerSettings);
+
+        Map<String, String> variables = new LinkedHashMap<>();
+        if (useJeffreyHome) {
+            variables.put(JEFFREY_HOME_PROP, jeffreyHome.toString());
+        }
+        variables.put(JEFFREY_WORKSPACES_PROP, workspacesPath.toString());
+        variables.put(JEFFREY_WORKSPACE_PROP, workspacePath.toString());
+        variables.put(JEFFREY_PROJECT_PROP, projectPath.toString());
+        variables.put(JEFFREY_SESSION_PROP, sessionPath.toString());
+        variables.put(JEFFREY_FILE_PATTERN_PROP, sessionPath.resolve(DEFAULT_FILE_TEMPLATE).toString());
+        if (profilerSettings != null && !profilerSettings.isEmpty()) {
+            variables.put(JEFFREY_PROFILER_CONFIG_PROP, profilerSettings);
+        }
+
+        Path envFile = createEnvFile(projectPath, sessionId, variables);
+
+        return new InitResult(
+                request.workspaceId(),
+                projectId,
+                sessionId,
+                projectCreated,
+                jeffreyHome,
+                workspacesPath,
+                workspacePath,
+                projectPath,
+                sessionPath,
+                envFile,
+                profilerSettings,
+                Collections.unmodifiableMap(variables));
+    }
+
+    private static void validate(InitRequest request) {
+        if (request.jeffreyHome() == null && request.workspacesDir() == null) {
+            throw new IllegalArgumentException(MISSING_WORKSPACES_MESSAGE);
+        }
+        if (request.jeffreyHome() != null && request.workspacesDir() != null) {
+            throw new IllegalArgumentException(CONFLICTING_WORKSPACES_MESSAGE);
+        }
+        if (isBlank(request.workspaceId())) {
+            throw new IllegalArgumentException(MISSING_WORKSPACE_ID_MESSAGE);
+        }
+        if (isBlank(request.projectName())) {
+            throw new IllegalArgumentException(MISSING_PROJECT_NAME_MESSAGE);
+        }
+        if (!PROJECT_NAME_PATTERN.matcher(request.projectName()).matches()) {
+            throw new IllegalArgumentException(INVALID_PROJECT_NAME_MESSAGE);
+        }
+        if (isBlank(request.projectLabel())) {
+            throw new IllegalArgumentException(MISSING_PROJECT_LABEL_MESSAGE);
+        }
+    }
+
+    /**
+     * ENV file is shared by all sessions of the project, it's written into a temporary file and atomically
+     * moved, concurrent initializations never produce a file mixing variables of multiple sessions.
+     */
+    private static Path createEnvFile(Path projectPath, String sessionId, Map<String, String> variables) {
+        Path envFilePath = projectPath.resolve(ENV_FILE_NAME);
+        Path tempFile = projectPath.resolve(ENV_FILE_NAME + "." + sessionId + ".tmp");
+        try {
+            Files.writeString(tempFile, envFileContent(variables));
+            return Files.move(tempFile, envFilePath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new InitException("Cannot create an ENV file: path=" + envFilePath + " error=" + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Renders the variables in the format of the ENV file, the content written for the session. The ENV file itself
+     * is shared by the sessions of the project, and it can be already replaced by a concurrent initialization.
+     *
+     * @param variables variables of the session, see {@link InitResult#variables()}
+     * @return content of the ENV file to source in the shell
+     */
+    public static String envFileContent(Map<String, String> variables) {
+        StringBuilder content = new StringBuilder();
+        for (Map.Entry<String, String> entry : variables.entrySet()) {
+            if (JEFFREY_PROFILER_CONFIG_PROP.equals(entry.getKey())) {
+                content.append(var(entry.getKey(), wrapQuotes(entry.getValue()), false));
+            } else {
+                content.append(var(entry.getKey(), entry.getValue(), true));
+            }
+        }
+        return content.toString();
+    }
+
+    private static String var(String name, String value, boolean addNewLine) {
+        return "export " + name + "=" + value + (addNewLine ? "\n" : "");
+    }
+
+    private static String wrapQuotes(String value) {
+        return "'" + value + "'";
+    }
+
+    /**
+     * Existing directories are checked first, {@link Files#createDirectories} does not follow symlinks and fails
+     * on a symlink to a directory.
+     */
+    private static Path createDirectories(Path path) {
+        try {
+            return Files.isDirectory(path) ? path : Files.createDirectories(path);
+        } catch (IOException e) {
+            throw new InitException("Cannot create a parent directories: " + path + " error=" + e.getMessage(), e);
+        }
+    }
+
+    private Object projectLock(Path projectPath) {
+        return projectLocks.computeIfAbsent(projectPath.toAbsolutePath().normalize(), path -> new Object());
+    }
+
+    /**
+     * The latency log is only used for metrics, it must not fail the initialization.
+     */
+    private void recordLatency(Path workspacePath, Duration duration) {
+        try {
+            InitLatencyLog.append(workspacePath, clock.instant(), duration);
+        } catch (IOException e) {
+            // Ignore, the session is already initialized
+        }
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.command;
+
+import pbouda.jeffrey.init.flamegraph.FlamegraphBuilder;
+import pbouda.jeffrey.init.flamegraph.FlamegraphWriter;
+import pbouda.jeffrey.init.flamegraph.FrameDictionary;
+import pbouda.jeffrey.init.flamegraph.FrameTrie;
+import pbouda.jeffrey.init.jfr.RecordingSlicer;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+@Command(
+        name = FlamegraphCommand.COMMAND_NAME,
+        description = "Precompute flamegraphs of the execution samples and allocations of the session's recordings. "
+                + "Writes collapsed stacks and a binary trie that can be loaded without any aggregation into the session directory.",
+        mixinStandardHelpOptions = true)
+public class FlamegraphCommand implements Runnable {
+
+    public static final String COMMAND_NAME = "flamegraph";
+
+    private static final String EXECUTION_SAMPLES_NAME = "flamegraph-cpu";
+    private static final String ALLOCATION_SAMPLES_NAME = "flamegraph-alloc";
+    private static final String TLAB_ALLOCATIONS_NAME = "flamegraph-alloc-tlab";
+    private static final String COLLAPSED_EXTENSION = ".collapsed";
+    private static final String BINARY_EXTENSION = ".bin";
+
+    @Parameters(index = "0", description = "Path to the session directory with the recordings")
+    private String sessionDir;
+
+    @Option(names = {"--parallelism"}, description = "Number of chunks processed concurrently (default: number of CPUs)")
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"--silent"}, description = "Suppress output. Only create the flamegraph files.")
+    private boolean silent = false;
+
+    @Override
+    public void run() {
+        Path sessionPath = Path.of(sessionDir);
+        if (!Files.isDirectory(sessionPath)) {
+            System.err.println("[ERROR] Session directory does not exist: " + sessionPath);
+            System.exit(1);
+        }
+
+        if (parallelism < 1) {
+            System.err.println("[ERROR] --parallelism must be a positive number");
+            System.exit(1);
+        }
+
+        try {
+            List<Path> recordings = RecordingSlicer.sessionRecordings(sessionPath);
+            if (recordings.isEmpty()) {
+                System.err.println("[ERROR] No recordings found in the session directory: " + sessionPath);
+                System.exit(1);
+            }
+
+            FlamegraphBuilder.BuildResult result = new FlamegraphBuilder(parallelism).build(recordings);
+            for (String recording : result.incompleteRecordings()) {
+                System.err.println("[WARNING] Incomplete recording, only finished chunks are used (see 'verify' command): " + recording);
+            }
+            if (result.chunks() == 0) {
+                System.err.println("[ERROR] No finished chunk found in the recordings: " + sessionPath);
+                System.exit(1);
+            }
+
+            FlamegraphBuilder.Flamegraphs flamegraphs = result.flamegraphs();
+            if (!silent) {
+                System.out.println("# Flamegraphs of " + recordings.size() + " recordings (" + result.chunks()
+                        + " chunks), unique frames: " + flamegraphs.frames().size());
+            }
+            write(sessionPath, EXECUTION_SAMPLES_NAME, flamegraphs.frames(), flamegraphs.executionSamples());
+            write(sessionPath, ALLOCATION_SAMPLES_NAME, flamegraphs.frames(), flamegraphs.allocationSamples());
+            write(sessionPath, TLAB_ALLOCATIONS_NAME, flamegraphs.frames(), flamegraphs.tlabAllocations());
+        } catch (Exception e) {
+            System.err.println("[ERROR] Cannot create flamegraphs of the session: " + sessionPath + " error=" + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void write(Path sessionPath, String name, FrameDictionary frames, FrameTrie trie) throws IOException {
+        Path collapsed = sessionPath.resolve(name + COLLAPSED_EXTENSION);
+        Path binary = sessionPath.resolve(name + BINARY_EXTENSION);
+
+        long totalWeight = trie.totalWeight();
+        if (totalWeight == 0) {
+            // Flamegraphs of the previous run would look like the current ones
+            Files.deleteIfExists(collapsed);
+            Files.deleteIfExists(binary);
+            if (!silent) {
+                System.out.println("# " + name + ": no events");
+            }
+            return;
+        }
+
+        FlamegraphWriter.writeCollapsed(frames, trie, collapsed);
+        FlamegraphWriter.writeBinary(frames, trie, binary);
+
+        if (!silent) {
+            System.out.println("# " + name + ": nodes=" + trie.size() + " total_weight=" + totalWeight);
+            System.out.println("# " + collapsed);
+            System.out.println("# " + binary);
+        }
+    }
+}
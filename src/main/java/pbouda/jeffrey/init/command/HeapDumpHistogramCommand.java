@@ -0,0 +1,118 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.command;
+
+import pbouda.jeffrey.init.FeatureBuilder;
+import pbouda.jeffrey.init.Json;
+import pbouda.jeffrey.init.heapdump.HeapHistogram;
+import pbouda.jeffrey.init.heapdump.HeapHistogramParser;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Command(
+        name = HeapDumpHistogramCommand.COMMAND_NAME,
+        description = "Create a class histogram (instances and shallow sizes per class, the largest arrays) of the HPROF heap dump "
+                + "in a single streaming pass. The result is stored as a JSON file next to the heap dump.",
+        mixinStandardHelpOptions = true)
+public class HeapDumpHistogramCommand implements Runnable {
+
+    public static final String COMMAND_NAME = "histogram";
+
+    private static final String HPROF_EXTENSION = ".hprof";
+    private static final String HISTOGRAM_SUFFIX = "-histogram.json";
+
+    @Parameters(index = "0", description = "Path to the HPROF file, or to the session directory containing '" + FeatureBuilder.HEAP_DUMP_FILENAME + "'")
+    private String path;
+
+    @Option(names = {"--top-classes"}, description = "Number of classes with the largest shallow size printed to the output (the JSON file contains all classes)", defaultValue = "30")
+    private int topClasses;
+
+    @Option(names = {"--top-arrays"}, description = "Number of the largest arrays kept in the result", defaultValue = "20")
+    private int topArrays;
+
+    @Option(names = {"--silent"}, description = "Suppress output. Only create the histogram file.")
+    private boolean silent = false;
+
+    @Override
+    public void run() {
+        Path heapDumpFile = resolveHeapDumpFile(Path.of(path));
+        if (!Files.isRegularFile(heapDumpFile)) {
+            System.err.println("[ERROR] Heap dump file does not exist: " + heapDumpFile);
+            System.exit(1);
+        }
+
+        if (topClasses < 0 || topArrays < 0) {
+            System.err.println("[ERROR] --top-classes and --top-arrays cannot be negative");
+            System.exit(1);
+        }
+
+        try {
+            HeapHistogram histogram = new HeapHistogramParser(heapDumpFile, topArrays).parse();
+
+            Path histogramFile = histogramFile(heapDumpFile);
+            Files.writeString(histogramFile, Json.toString(histogram));
+
+            if (histogram.truncated()) {
+                System.err.println("[WARNING] Heap dump is truncated, the histogram contains only the parsed part: " + heapDumpFile);
+            }
+            if (!silent) {
+                System.out.println("# Histogram file: ");
+                System.out.println("# " + histogramFile);
+                print(histogram);
+            }
+        } catch (Exception e) {
+            System.err.println("[ERROR] Cannot create a histogram of the heap dump: " + heapDumpFile + " error=" + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private static Path resolveHeapDumpFile(Path path) {
+        return Files.isDirectory(path) ? path.resolve(FeatureBuilder.HEAP_DUMP_FILENAME) : path;
+    }
+
+    private static Path histogramFile(Path heapDumpFile) {
+        String filename = heapDumpFile.getFileName().toString();
+        if (filename.endsWith(HPROF_EXTENSION)) {
+            filename = filename.substring(0, filename.length() - HPROF_EXTENSION.length());
+        }
+        return heapDumpFile.resolveSibling(filename + HISTOGRAM_SUFFIX);
+    }
+
+    private void print(HeapHistogram histogram) {
+        System.out.printf("%n%5s %15s %18s  %s%n", "num", "#instances", "#bytes", "class name");
+        System.out.println("-".repeat(80));
+        int num = 1;
+        for (HeapHistogram.ClassEntry entry : histogram.classes().subList(0, Math.min(topClasses, histogram.classes().size()))) {
+            System.out.printf("%5d %15d %18d  %s%n", num++, entry.instances(), entry.shallowSize(), entry.className());
+        }
+        System.out.printf("%5s %15d %18d%n", "Total", histogram.totalInstances(), histogram.totalShallowSize());
+
+        if (!histogram.largestArrays().isEmpty()) {
+            System.out.printf("%n%-20s %15s %18s  %s%n", "object id", "#length", "#bytes", "array type");
+            System.out.println("-".repeat(80));
+            for (HeapHistogram.ArrayEntry entry : histogram.largestArrays()) {
+                System.out.printf("%-20s %15d %18d  %s%n", entry.objectId(), entry.length(), entry.shallowSize(), entry.className());
+            }
+        }
+    }
+}
@@ -1,22 +1,18 @@
 package pbouda.jeffrey.init.command;
 
-import pbouda.jeffrey.init.FeatureBuilder;
-import pbouda.jeffrey.init.FileSystemRepository;
-import pbouda.jeffrey.init.IDGenerator;
-import pbouda.jeffrey.init.ProfilerSettingsResolver;
-import pbouda.jeffrey.init.model.RemoteProject;
+import pbouda.jeffrey.init.SessionInitializer;
+import pbouda.jeffrey.init.model.InitRequest;
+import pbouda.jeffrey.init.model.InitResult;
 import pbouda.jeffrey.init.model.RepositoryType;
 import pbouda.jeffrey.init.model.RepositoryTypeConverter;
 import picocli.CommandLine.Command;
 import picocli.CommandLine.Option;
 
-import java.io.IOException;
-import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
 import java.nio.file.Path;
 import java.time.Clock;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.Optional;
 
 @Command(
         name = InitCommand.COMMAND_NAME,
@@ -24,22 +20,16 @@ import java.util.Optional;
         mixinStandardHelpOptions = true)
 public class InitCommand implements Runnable {
 
-    private static final Clock CLOCK = Clock.systemUTC();
-
     public static final String COMMAND_NAME = "init";
 
-    private static final String DEFAULT_FILE_TEMPLATE = "profile-%t.jfr";
-    private static final String ENV_FILE_NAME = ".env";
-    private static final String WORKSPACES_DIR_NAME = "workspaces";
-    private static final String JEFFREY_HOME_PROP = "JEFFREY_HOME";
-    private static final String JEFFREY_WORKSPACES_PROP = "JEFFREY_WORKSPACES";
-    private static final String JEFFREY_WORKSPACE_PROP = "JEFFREY_CURRENT_WORKSPACE";
-    private static final String JEFFREY_SESSION_PROP = "JEFFREY_CURRENT_SESSION";
-    private static final String JEFFREY_PROJECT_PROP = "JEFFREY_CURRENT_PROJECT";
-    private static final String JEFFREY_FILE_PATTERN_PROP = "JEFFREY_FILE_PATTERN";
-    private static final String JEFFREY_PROFILER_CONFIG_PROP = "JEFFREY_PROFILER_CONFIG";
+    private static final SessionInitializer SESSION_INITIALIZER = new SessionInitializer(Clock.systemUTC());
 
-    private static final ProfilerSettingsResolver PROFILER_SETTINGS_RESOLVER = new ProfilerSettingsResolver();
+    private static final Map<String, String> OPTION_MESSAGES = Map.of(
+            SessionInitializer.MISSING_WORKSPACES_MESSAGE, "Either --jeffrey-home or --workspaces-dir must be specified",
+            SessionInitializer.CONFLICTING_WORKSPACES_MESSAGE, "Cannot specify both --jeffrey-home and --workspaces-dir",
+            SessionInitializer.MISSING_WORKSPACE_ID_MESSAGE, "--workspace-id must be specified",
+            SessionInitializer.MISSING_PROJECT_NAME_MESSAGE, "--project-name must be specified",
+            SessionInitializer.MISSING_PROJECT_LABEL_MESSAGE, "--project-label must be specified");
 
     @Option(names = {"--silent"}, description = "Suppress output. Only create the variable without printing the output for sourcing.")
     private boolean silent = false;
@@ -79,162 +69,46 @@ public class InitCommand implements Runnable {
 
     @Override
     public void run() {
-        validateArguments();
-
-        boolean useJeffreyHome = jeffreyHomePath != null;
-
-        Path jeffreyHome;
-        Path workspacesPath;
-
-        if (useJeffreyHome) {
-            jeffreyHome = createDirectories(Path.of(this.jeffreyHomePath));
-            workspacesPath = createDirectories(jeffreyHome.resolve(WORKSPACES_DIR_NAME));
-        } else {
-            workspacesPath = createDirectories(Path.of(this.workspacesDir));
-            jeffreyHome = null; // Will not be used when workspacesPath is specified
-        }
-
-        if (!workspacesPath.toFile().exists()) {
-            System.err.println("[ERROR] Cannot create parent directories: " + workspacesPath);
-            System.exit(1);
-        }
-
         try {
-            Path workspacePath = createDirectories(workspacesPath.resolve(workspaceId));
-
-            // Initialize filesystem repository for managing project/session data
-            FileSystemRepository repository = new FileSystemRepository(CLOCK);
-
-            String projectId;
-            Path projectPath = workspacePath.resolve(projectName);
-
-            Optional<RemoteProject> projectOpt = repository.findProject(projectPath);
-            if (projectOpt.isPresent()) {
-                projectId = projectOpt.get().projectId();
-            } else {
-                // Create new project
-                projectId = IDGenerator.generate();
-
-                createDirectories(projectPath);
-                repository.addProject(
-                        projectId, projectName, projectLabel, workspaceId,
-                        repositoryType, parseAttributes(attributes), projectPath);
-            }
-
-            String sessionId = IDGenerator.generate();
-            Path newSessionPath = createDirectories(projectPath.resolve(sessionId));
-
-            String features = new FeatureBuilder()
-                    .setHeapDumpEnabled(enableHeapDump)
+            InitRequest request = InitRequest.builder()
+                    .setJeffreyHome(toPath("--jeffrey-home", jeffreyHomePath))
+                    .setWorkspacesDir(toPath("--workspaces-dir", workspacesDir))
+                    .setWorkspaceId(workspaceId)
+                    .setProjectName(projectName)
+                    .setProjectLabel(projectLabel)
+                    .setAttributes(parseAttributes(attributes))
+                    .setProfilerPath(profilerPath)
+                    .setProfilerConfig(profilerConfig)
+                    .setRepositoryType(repositoryType)
                     .setPerfCountersEnabled(enablePerfCounters)
-                    .build(newSessionPath);
-
-            String profilerSettings = PROFILER_SETTINGS_RESOLVER.resolve(
-                    profilerPath,
-                    profilerConfig,
-                    workspacePath,
-                    projectName,
-                    newSessionPath,
-                    features);
-
-            // Add session
-            repository.addSession(
-                    sessionId,
-                    projectId,
-                    workspaceId,
-                    workspacePath.relativize(newSessionPath),
-                    useJeffreyHome ? null : workspacesPath,
-                    newSessionPath,
-                    profilerSettings);
-
-            String variables = variables(
-                    jeffreyHome,
-                    workspacesPath,
-                    workspacePath,
-                    projectPath,
-                    newSessionPath,
-                    profilerSettings,
-                    useJeffreyHome);
+                    .setHeapDumpEnabled(enableHeapDump)
+                    .build();
 
-            Path envFile = createEnvFile(projectPath, variables);
+            InitResult result = SESSION_INITIALIZER.initialize(request);
             if (!silent) {
                 System.out.println("# ENV file to with variables to source: ");
-                System.out.println("# " + envFile);
-                System.out.println(Files.readString(envFile));
+                System.out.println("# " + result.envFile());
+                // The shared ENV file can be already replaced by a concurrent initialization of the project
+                System.out.println(SessionInitializer.envFileContent(result.variables()));
             }
-        } catch (Exception e) {
-            System.err.println("[ERROR] Cannot create a new directory and env-file: " + workspacesPath + " error=" + e.getMessage());
-            System.exit(1);
-        }
-    }
-
-    private void validateArguments() {
-        if (jeffreyHomePath == null && workspacesDir == null) {
-            System.err.println("[ERROR] Either --jeffrey-home or --workspaces must be specified");
-            System.exit(1);
-        }
-
-        if (jeffreyHomePath != null && workspacesDir != null) {
-            System.err.println("[ERROR] Cannot specify both --jeffrey-home and --workspaces");
-            System.exit(1);
-        }
-
-        if (projectName != null && !projectName.matches("^[a-zA-Z0-9_-]+$")) {
-            System.err.println("[ERROR] Project name can only contain alphanumeric characters, underscores, and dashes");
+        } catch (IllegalArgumentException e) {
+            System.err.println("[ERROR] " + OPTION_MESSAGES.getOrDefault(e.getMessage(), e.getMessage()));
             System.exit(1);
-        }
-    }
-
-    private static Path createEnvFile(Path projectPath, String variables) {
-        Path envFilePath = projectPath.resolve(ENV_FILE_NAME);
-        try {
-            return Files.writeString(envFilePath, variables);
-        } catch (IOException e) {
-            System.err.println("[ERROR] Cannot create an ENV file: path=" + envFilePath + " error=" + e.getMessage());
+        } catch (Exception e) {
+            String workspaces = jeffreyHomePath != null ? jeffreyHomePath : workspacesDir;
+            System.err.println("[ERROR] Cannot create a new directory and env-file: " + workspaces + " error=" + e.getMessage());
             System.exit(1);
-            return null; // Unreachable, but required for compilation
         }
     }
 
-    private static String variables(
-            Path jeffreyHome,
-            Path workspacesPath,
-            Path workspacePath,
-            Path projectPath,
-            Path sessionPath,
-            String profilerSettings,
-            boolean useJeffreyHome) {
-
-        String output = "";
-        if (useJeffreyHome) {
-            output += var(JEFFREY_HOME_PROP, jeffreyHome);
-        }
-        output += var(JEFFREY_WORKSPACES_PROP, workspacesPath);
-        output += var(JEFFREY_WORKSPACE_PROP, workspacePath);
-        output += var(JEFFREY_PROJECT_PROP, projectPath);
-        output += var(JEFFREY_SESSION_PROP, sessionPath);
-        output += var(JEFFREY_FILE_PATTERN_PROP, sessionPath.resolve(DEFAULT_FILE_TEMPLATE));
-        if (profilerSettings != null && !profilerSettings.isEmpty()) {
-            output += var(JEFFREY_PROFILER_CONFIG_PROP, wrapQuotes(profilerSettings), false);
+    private static Path toPath(String option, String value) {
+        if (value == null) {
+            return null;
         }
-        return output;
-    }
-
-    private static String var(String name, Path value) {
-        return var(name, value.toString(), true);
-    }
-
-    private static String var(String name, String value, boolean addNewLine) {
-        return "export " + name + "=" + value + (addNewLine ? "\n" : "");
-    }
-
-    private static Path createDirectories(Path path) {
         try {
-            return Files.exists(path) ? path : Files.createDirectories(path);
-        } catch (IOException e) {
-            System.err.println("[ERROR] Cannot create a parent directories: " + path + " error=" + e.getMessage());
-            System.exit(1);
-            return null; // Unreachable, but required for compilation
+            return Path.of(value);
+        } catch (InvalidPathException e) {
+            throw new IllegalArgumentException("Invalid path of " + option + ": " + e.getMessage(), e);
         }
     }
 
@@ -252,8 +126,4 @@ public class InitCommand implements Runnable {
         }
         return attributes;
     }
-
-    private static String wrapQuotes(String value) {
-        return "'" + value + "'";
-    }
 }
@@ -0,0 +1,125 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.command;
+
+import com.sun.net.httpserver.HttpServer;
+import pbouda.jeffrey.init.SessionInitializer;
+import pbouda.jeffrey.init.metrics.WorkspaceMetrics;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+
+@Command(
+        name = MetricsCommand.COMMAND_NAME,
+        description = "Print statistics of the workspaces and sessions in Prometheus text format, or serve them on the HTTP endpoint.",
+        mixinStandardHelpOptions = true)
+public class MetricsCommand implements Runnable {
+
+    private static final Clock CLOCK = Clock.systemUTC();
+
+    public static final String COMMAND_NAME = "metrics";
+
+    private static final String METRICS_PATH = "/metrics";
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    @Option(names = {"--jeffrey-home"}, description = "Jeffrey HOME directory path with 'workspaces' directory (Otherwise, --workspaces-dir must be provided).")
+    private String jeffreyHomePath;
+
+    @Option(names = {"--workspaces-dir"}, description = "Workspaces directory path (Otherwise, --jeffrey-home must be provided).")
+    private String workspacesDir;
+
+    @Option(names = {"--serve"}, description = "Start HTTP server exposing the metrics on '" + METRICS_PATH + "' endpoint instead of printing them")
+    private boolean serve = false;
+
+    @Option(names = {"--host"}, description = "Host of the HTTP server", defaultValue = "0.0.0.0")
+    private String host;
+
+    @Option(names = {"--port"}, description = "Port of the HTTP server", defaultValue = "9464")
+    private int port;
+
+    @Option(names = {"--active-session-minutes"}, description = "Sessions changed within this window are re-scanned on every scrape, the others only when their directory changes", defaultValue = "60")
+    private long activeSessionMinutes;
+
+    @Override
+    public void run() {
+        if (jeffreyHomePath == null && workspacesDir == null) {
+            System.err.println("[ERROR] Either --jeffrey-home or --workspaces-dir must be specified");
+            System.exit(1);
+        }
+
+        if (jeffreyHomePath != null && workspacesDir != null) {
+            System.err.println("[ERROR] Cannot specify both --jeffrey-home and --workspaces-dir");
+            System.exit(1);
+        }
+
+        Path workspacesPath = jeffreyHomePath != null
+                ? Path.of(jeffreyHomePath).resolve(SessionInitializer.WORKSPACES_DIR_NAME)
+                : Path.of(workspacesDir);
+
+        WorkspaceMetrics metrics = new WorkspaceMetrics(workspacesPath, CLOCK, Duration.ofMinutes(activeSessionMinutes));
+        try {
+            if (serve) {
+                serve(metrics);
+            } else {
+                System.out.print(metrics.scrape());
+            }
+        } catch (Exception e) {
+            System.err.println("[ERROR] Cannot export metrics of the workspaces: " + workspacesPath + " error=" + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private void serve(WorkspaceMetrics metrics) throws Exception {
+        HttpServer server = HttpServer.create(new InetSocketAddress(host, port), 0);
+        server.createContext(METRICS_PATH, exchange -> {
+            int status;
+            byte[] body;
+            try {
+                body = metrics.scrape().getBytes(StandardCharsets.UTF_8);
+                status = 200;
+            } catch (Exception e) {
+                body = ("Cannot export metrics: " + e.getMessage()).getBytes(StandardCharsets.UTF_8);
+                status = 500;
+            }
+
+            exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream output = exchange.getResponseBody()) {
+                output.write(body);
+            }
+        });
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.stop(0);
+            stopped.countDown();
+        }));
+
+        server.start();
+        System.out.println("# Metrics endpoint: http://" + host + ":" + server.getAddress().getPort() + METRICS_PATH);
+        stopped.await();
+    }
+}
@@ -0,0 +1,149 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.command;
+
+import pbouda.jeffrey.init.jfr.JfrChunks;
+import pbouda.jeffrey.init.jfr.RecordingSlicer;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.List;
+
+@Command(
+        name = SliceCommand.COMMAND_NAME,
+        description = "Create a recording in the session directory containing only the events from the given time range. "
+                + "The chunks are selected by their headers, only the chunks crossing the boundaries of the range are filtered.",
+        mixinStandardHelpOptions = true)
+public class SliceCommand implements Runnable {
+
+    public static final String COMMAND_NAME = "slice";
+
+    private static final DateTimeFormatter SLICE_TIMESTAMP_FORMATTER =
+            DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'").withZone(ZoneOffset.UTC);
+
+    @Parameters(index = "0", description = "Path to the session directory with the recordings")
+    private String sessionDir;
+
+    @Option(names = {"--from"}, description = "Start of the time range in ISO-8601 format (e.g. 2025-01-15T14:30:00Z)", required = true)
+    private String from;
+
+    @Option(names = {"--to"}, description = "End of the time range in ISO-8601 format (e.g. 2025-01-15T14:35:00Z)", required = true)
+    private String to;
+
+    @Option(names = {"--output"}, description = "Filename of the resulting recording in the session directory, prefixed with 'slice-' if missing (default: slice-<from>-<to>.jfr)")
+    private String output;
+
+    @Option(names = {"--parallelism"}, description = "Number of chunks processed concurrently (default: number of CPUs)")
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"--silent"}, description = "Suppress output. Only create the recording.")
+    private boolean silent = false;
+
+    @Override
+    public void run() {
+        Path sessionPath = Path.of(sessionDir);
+        if (!Files.isDirectory(sessionPath)) {
+            System.err.println("[ERROR] Session directory does not exist: " + sessionPath);
+            System.exit(1);
+        }
+
+        Instant fromInstant = parseInstant("--from", from);
+        Instant toInstant = parseInstant("--to", to);
+        if (!fromInstant.isBefore(toInstant)) {
+            System.err.println("[ERROR] --from must be before --to");
+            System.exit(1);
+        }
+
+        if (parallelism < 1) {
+            System.err.println("[ERROR] --parallelism must be a positive number");
+            System.exit(1);
+        }
+
+        Path outputPath = sessionPath.resolve(outputFilename(fromInstant, toInstant));
+        if (Files.exists(outputPath) && !Files.isRegularFile(outputPath)) {
+            System.err.println("[ERROR] Output already exists and is not a recording: " + outputPath);
+            System.exit(1);
+        }
+
+        try {
+            // Slices (including the output) are not the source of the new slices
+            List<Path> recordings = RecordingSlicer.sessionRecordings(sessionPath);
+
+            RecordingSlicer.SliceResult result = new RecordingSlicer(parallelism)
+                    .slice(recordings, fromInstant, toInstant, outputPath);
+
+            if (result.skippedRecordings() > 0) {
+                System.err.println("[WARNING] Recordings with incomplete chunks: " + result.skippedRecordings()
+                        + " (only finished chunks are used, see 'verify' command)");
+            }
+            if (result.selectedChunks() == 0) {
+                System.err.println("[ERROR] No chunk of the recordings overlaps the time range: from=" + fromInstant + " to=" + toInstant);
+                System.exit(1);
+            }
+            if (!silent) {
+                System.out.println("# Sliced recording: ");
+                System.out.println("# " + outputPath);
+                System.out.println("# recordings=" + recordings.size()
+                        + " copied_chunks=" + result.copiedChunks()
+                        + " filtered_chunks=" + result.filteredChunks()
+                        + " size_bytes=" + result.outputBytes());
+            }
+        } catch (Exception e) {
+            System.err.println("[ERROR] Cannot slice the recordings: " + sessionPath + " error=" + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    /**
+     * The output is always a slice in the session directory, it's never used as a source of other slices
+     * and flamegraphs, and it never replaces the original recordings.
+     */
+    private String outputFilename(Instant fromInstant, Instant toInstant) {
+        if (output == null) {
+            return RecordingSlicer.SLICE_PREFIX + SLICE_TIMESTAMP_FORMATTER.format(fromInstant)
+                    + "-" + SLICE_TIMESTAMP_FORMATTER.format(toInstant) + JfrChunks.JFR_EXTENSION;
+        }
+
+        String filename = output.strip();
+        if (filename.isEmpty() || filename.equals(".") || filename.equals("..")
+                || filename.contains("/") || filename.contains(File.separator)) {
+            System.err.println("[ERROR] --output must be a filename without a directory: " + output);
+            System.exit(1);
+        }
+        return filename.startsWith(RecordingSlicer.SLICE_PREFIX) ? filename : RecordingSlicer.SLICE_PREFIX + filename;
+    }
+
+    private static Instant parseInstant(String option, String value) {
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            System.err.println("[ERROR] Invalid " + option + " value (expected ISO-8601, e.g. 2025-01-15T14:30:00Z): " + value);
+            System.exit(1);
+            return null; // Unreachable, but required for compilation
+        }
+    }
+}
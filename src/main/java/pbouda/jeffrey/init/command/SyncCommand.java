@@ -0,0 +1,97 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.command;
+
+import pbouda.jeffrey.init.sync.SyncResult;
+import pbouda.jeffrey.init.sync.WorkspaceSynchronizer;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+@Command(
+        name = SyncCommand.COMMAND_NAME,
+        description = "Incrementally replicate the workspace directory into the target directory. Only new and changed files are copied, "
+                + "JFR files that are still being written are only tail-appended.",
+        mixinStandardHelpOptions = true)
+public class SyncCommand implements Runnable {
+
+    public static final String COMMAND_NAME = "sync";
+
+    @Option(names = {"--workspace-dir"}, description = "Path to the workspace directory to replicate", required = true)
+    private String workspaceDir;
+
+    @Option(names = {"--target-dir"}, description = "Path to the target directory, the manifest of the synchronization is stored there", required = true)
+    private String targetDir;
+
+    @Option(names = {"--parallelism"}, description = "Number of files transferred concurrently", defaultValue = "4")
+    private int parallelism;
+
+    @Option(names = {"--silent"}, description = "Suppress output. Only print errors.")
+    private boolean silent = false;
+
+    @Override
+    public void run() {
+        Path workspacePath = Path.of(workspaceDir).toAbsolutePath().normalize();
+        Path targetPath = Path.of(targetDir).toAbsolutePath().normalize();
+
+        if (!Files.isDirectory(workspacePath)) {
+            System.err.println("[ERROR] Workspace directory does not exist: " + workspacePath);
+            System.exit(1);
+        }
+
+        if (targetPath.startsWith(workspacePath) || workspacePath.startsWith(targetPath)) {
+            System.err.println("[ERROR] Workspace and target directories cannot be nested: workspace=" + workspacePath + " target=" + targetPath);
+            System.exit(1);
+        }
+
+        if (parallelism < 1) {
+            System.err.println("[ERROR] --parallelism must be a positive number");
+            System.exit(1);
+        }
+
+        try {
+            SyncResult result = new WorkspaceSynchronizer(workspacePath, targetPath, parallelism).sync();
+            if (!silent) {
+                System.out.println("# Workspace synchronized: " + workspacePath + " -> " + targetPath);
+                System.out.println("# copied=" + result.copiedFiles()
+                        + " appended=" + result.appendedFiles()
+                        + " unchanged=" + result.unchangedFiles()
+                        + " transferred_bytes=" + result.transferredBytes());
+            }
+
+            if (result.failed()) {
+                for (String failure : result.dataFailures()) {
+                    System.err.println("[ERROR] Cannot synchronize the file: " + failure);
+                }
+                if (!result.dataFailures().isEmpty()) {
+                    System.err.println("[ERROR] Metadata files were not published due to the failures above");
+                }
+                for (String failure : result.metadataFailures()) {
+                    System.err.println("[ERROR] Cannot publish the metadata file: " + failure);
+                }
+                System.exit(1);
+            }
+        } catch (Exception e) {
+            System.err.println("[ERROR] Cannot synchronize the workspace: " + workspacePath + " error=" + e.getMessage());
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.command;
+
+import pbouda.jeffrey.init.jfr.ChunkScan;
+import pbouda.jeffrey.init.jfr.RecordingVerifier;
+import picocli.CommandLine.Command;
+import picocli.CommandLine.Option;
+import picocli.CommandLine.Parameters;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+@Command(
+        name = VerifyCommand.COMMAND_NAME,
+        description = "Verify the chunk headers of JFR recordings (without decoding events) and optionally repair the recordings "
+                + "with incomplete chunks (e.g. after a JVM crash) by truncating them to the last finished chunk.",
+        mixinStandardHelpOptions = true)
+public class VerifyCommand implements Runnable {
+
+    private static final Clock CLOCK = Clock.systemUTC();
+
+    public static final String COMMAND_NAME = "verify";
+
+    @Parameters(index = "0", description = "Path to the JFR file, or to the session/project/workspace directory with the recordings")
+    private String path;
+
+    @Option(names = {"--repair"}, description = "Truncate the incomplete recordings to the last finished chunk")
+    private boolean repair = false;
+
+    @Option(names = {"--min-idle-seconds"}, description = "Recordings modified more recently are considered as being written and are not repaired", defaultValue = "60")
+    private long minIdleSeconds;
+
+    @Option(names = {"--parallelism"}, description = "Number of recordings verified concurrently (default: number of CPUs)")
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+
+    @Option(names = {"--silent"}, description = "Suppress output. Only print the incomplete recordings.")
+    private boolean silent = false;
+
+    @Override
+    public void run() {
+        Path recordingsPath = Path.of(path);
+        if (!Files.exists(recordingsPath)) {
+            System.err.println("[ERROR] Path does not exist: " + recordingsPath);
+            System.exit(1);
+        }
+
+        if (parallelism < 1) {
+            System.err.println("[ERROR] --parallelism must be a positive number");
+            System.exit(1);
+        }
+
+        try {
+            List<Path> recordings = RecordingVerifier.findRecordings(recordingsPath);
+            Map<Path, ChunkScan> scans = new RecordingVerifier(parallelism).verify(recordings);
+
+            int incomplete = 0;
+            for (Map.Entry<Path, ChunkScan> entry : scans.entrySet()) {
+                Path recording = entry.getKey();
+                ChunkScan scan = entry.getValue();
+
+                if (scan.complete()) {
+                    if (!silent) {
+                        System.out.println("[OK]         " + recording + " chunks=" + scan.finishedChunks().size());
+                    }
+                } else if (repair && scan.repairable() && isIdle(recording)) {
+                    RecordingVerifier.repair(recording, scan);
+                    System.out.println("[REPAIRED]   " + recording + " chunks=" + scan.finishedChunks().size()
+                            + " truncated_from=" + scan.fileSize() + " truncated_to=" + scan.finishedEnd()
+                            + " problem=\"" + scan.problem() + "\"");
+                } else {
+                    incomplete++;
+                    System.out.println("[INCOMPLETE] " + recording + " chunks=" + scan.finishedChunks().size()
+                            + " valid_size=" + scan.finishedEnd() + " file_size=" + scan.fileSize()
+                            + " problem=\"" + scan.problem() + "\"");
+                }
+            }
+
+            if (!silent) {
+                System.out.println("# Verified recordings: " + scans.size() + " incomplete: " + incomplete);
+            }
+            if (incomplete > 0) {
+                System.exit(1);
+            }
+        } catch (Exception e) {
+            System.err.println("[ERROR] Cannot verify the recordings: " + recordingsPath + " error=" + e.getMessage());
+            System.exit(1);
+        }
+    }
+
+    private boolean isIdle(Path recording) throws IOException {
+        Instant lastModified = Files.getLastModifiedTime(recording).toInstant();
+        return Duration.between(lastModified, CLOCK.instant()).getSeconds() >= minIdleSeconds;
+    }
+}
@@ -0,0 +1,318 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.flamegraph;
+
+import jdk.jfr.consumer.RecordedClass;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedMethod;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordingFile;
+import pbouda.jeffrey.init.FileSystemUtils;
+import pbouda.jeffrey.init.IDGenerator;
+import pbouda.jeffrey.init.jfr.ChunkHeader;
+import pbouda.jeffrey.init.jfr.ChunkScan;
+import pbouda.jeffrey.init.jfr.JfrChunks;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Aggregates execution samples and allocations of the recordings into {@link FrameTrie tries}. The finished chunks
+ * of the recordings are found by their headers and distributed among the workers, therefore, even a session with
+ * a single large recording is processed concurrently. Every worker streams its chunks into its own trie and
+ * dictionary, the per-worker tries are merged at the end, and the memory footprint depends only on the number of
+ * unique stacks and the parallelism. Unfinished chunks (still recording, or left by a crashed JVM) are skipped.
+ * <p>
+ * The JFR parser resolves the stack traces, methods and classes from the constant pools only once per chunk,
+ * therefore, the events with the same stack share the same instance. The already inserted stacks are looked up
+ * by identity, and the stack is walked only for the first event.
+ */
+public class FlamegraphBuilder {
+
+    /**
+     * Allocation samples and TLAB allocations describe the same allocations on different scales (sampled weight
+     * vs. TLAB or object size), they are kept in separate tries not to count the allocations twice.
+     *
+     * @param frames            names of the frames shared by all tries
+     * @param executionSamples  stacks of {@code jdk.ExecutionSample}, weighted by the number of samples
+     * @param allocationSamples stacks of {@code jdk.ObjectAllocationSample}, weighted by the sample weight
+     * @param tlabAllocations   stacks of {@code jdk.ObjectAllocationInNewTLAB} and {@code jdk.ObjectAllocationOutsideTLAB},
+     *                          weighted by the TLAB size and the allocation size
+     */
+    public record Flamegraphs(
+            FrameDictionary frames,
+            FrameTrie executionSamples,
+            FrameTrie allocationSamples,
+            FrameTrie tlabAllocations) {
+    }
+
+    /**
+     * @param flamegraphs          merged flamegraphs of all finished chunks
+     * @param chunks               number of the aggregated chunks
+     * @param incompleteRecordings recordings with an unfinished or corrupted remainder that was skipped
+     */
+    public record BuildResult(Flamegraphs flamegraphs, int chunks, List<String> incompleteRecordings) {
+    }
+
+    private record Chunk(Path recording, ChunkHeader header, boolean wholeFile) {
+    }
+
+    private static final String EXECUTION_SAMPLE = "jdk.ExecutionSample";
+    private static final String ALLOCATION_SAMPLE = "jdk.ObjectAllocationSample";
+    private static final String ALLOCATION_IN_NEW_TLAB = "jdk.ObjectAllocationInNewTLAB";
+    private static final String ALLOCATION_OUTSIDE_TLAB = "jdk.ObjectAllocationOutsideTLAB";
+
+    private static final String TEMP_FILE_PREFIX = ".flamegraph-";
+    private static final String TEMP_FILE_SUFFIX = ".chunk";
+
+    /* Bounds the identity caches in case the parser does not share the instances */
+    private static final int IDENTITY_CACHE_LIMIT = 100_000;
+
+    private final int parallelism;
+
+    public FlamegraphBuilder(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    public BuildResult build(List<Path> recordings) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        List<String> incompleteRecordings = new ArrayList<>();
+        for (Path recording : recordings) {
+            ChunkScan scan;
+            try (FileChannel channel = FileChannel.open(recording, StandardOpenOption.READ)) {
+                scan = JfrChunks.scan(channel);
+            }
+            if (!scan.complete()) {
+                incompleteRecordings.add(recording + " skipped_bytes=" + (scan.fileSize() - scan.finishedEnd())
+                        + " problem=\"" + scan.problem() + "\"");
+            }
+
+            // Unfinished chunks cannot be parsed, only the finished ones are used
+            for (ChunkHeader header : scan.finishedChunks()) {
+                boolean wholeFile = header.offset() == 0 && header.size() == scan.fileSize();
+                chunks.add(new Chunk(recording, header, wholeFile));
+            }
+        }
+
+        Flamegraphs result = new Flamegraphs(new FrameDictionary(), new FrameTrie(), new FrameTrie(), new FrameTrie());
+        int workers = Math.min(parallelism, chunks.size());
+        AtomicInteger nextChunk = new AtomicInteger();
+        try (ExecutorService executor = Executors.newFixedThreadPool(Math.max(workers, 1))) {
+            List<Future<Flamegraphs>> futures = new ArrayList<>();
+            for (int i = 0; i < workers; i++) {
+                futures.add(executor.submit(() -> aggregateChunks(chunks, nextChunk)));
+            }
+
+            for (Future<Flamegraphs> future : futures) {
+                try {
+                    merge(result, future.get());
+                } catch (ExecutionException e) {
+                    // Stops the other workers after their current chunk
+                    nextChunk.set(chunks.size());
+                    throw e.getCause() instanceof IOException cause
+                            ? cause
+                            : new IOException("Cannot build the flamegraphs: " + e.getCause().getMessage(), e.getCause());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Building of the flamegraphs was interrupted", e);
+                }
+            }
+        }
+        return new BuildResult(result, chunks.size(), incompleteRecordings);
+    }
+
+    /**
+     * Takes the chunks one by one until all of them are taken by the workers, and aggregates them
+     * into the same trie and dictionary.
+     */
+    private static Flamegraphs aggregateChunks(List<Chunk> chunks, AtomicInteger nextChunk) throws IOException {
+        Aggregator aggregator = new Aggregator();
+        int index;
+        while ((index = nextChunk.getAndIncrement()) < chunks.size()) {
+            Chunk chunk = chunks.get(index);
+            try {
+                aggregate(aggregator, chunk);
+            } catch (IOException | RuntimeException e) {
+                nextChunk.set(chunks.size());
+                throw new IOException("Cannot read the chunk: recording=" + chunk.recording()
+                        + " offset=" + chunk.header().offset() + " error=" + e.getMessage(), e);
+            }
+        }
+        return aggregator.flamegraphs();
+    }
+
+    /**
+     * A recording consisting of a single finished chunk is parsed directly, otherwise, the chunk is copied
+     * into a temporary file next to the recording (the parser cannot be limited to a part of the file).
+     */
+    private static void aggregate(Aggregator aggregator, Chunk chunk) throws IOException {
+        if (chunk.wholeFile()) {
+            aggregator.aggregate(chunk.recording());
+            return;
+        }
+
+        Path tempFile = chunk.recording().resolveSibling(TEMP_FILE_PREFIX + IDGenerator.generate() + TEMP_FILE_SUFFIX);
+        try {
+            try (FileChannel source = FileChannel.open(chunk.recording(), StandardOpenOption.READ);
+                 FileChannel target = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE)) {
+                FileSystemUtils.transfer(source, target, chunk.header().offset(), chunk.header().size());
+            }
+            aggregator.aggregate(tempFile);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    private static void merge(Flamegraphs target, Flamegraphs source) {
+        int[] frameMapping = new int[source.frames().size()];
+        for (int frame = 0; frame < frameMapping.length; frame++) {
+            frameMapping[frame] = target.frames().intern(source.frames().frame(frame));
+        }
+        target.executionSamples().merge(source.executionSamples(), frameMapping);
+        target.allocationSamples().merge(source.allocationSamples(), frameMapping);
+        target.tlabAllocations().merge(source.tlabAllocations(), frameMapping);
+    }
+
+    private static final class Aggregator {
+
+        private final FrameDictionary frames = new FrameDictionary();
+        private final FrameTrie executionSamples = new FrameTrie();
+        private final FrameTrie allocationSamples = new FrameTrie();
+        private final FrameTrie tlabAllocations = new FrameTrie();
+
+        private final Map<RecordedStackTrace, Integer> executionStacks = new IdentityHashMap<>();
+        private final Map<RecordedStackTrace, Integer> allocationSampleStacks = new IdentityHashMap<>();
+        private final Map<RecordedStackTrace, Integer> tlabAllocationStacks = new IdentityHashMap<>();
+        private final Map<RecordedMethod, Integer> methods = new IdentityHashMap<>();
+        private final Map<RecordedClass, Integer> classes = new IdentityHashMap<>();
+
+        /**
+         * Adds the events of the recording (a single chunk) into the tries. The instances resolved
+         * from the constant pools are never shared between the chunks, the identity caches are released.
+         */
+        void aggregate(Path recording) throws IOException {
+            executionStacks.clear();
+            allocationSampleStacks.clear();
+            tlabAllocationStacks.clear();
+            methods.clear();
+            classes.clear();
+
+            try (RecordingFile recordingFile = new RecordingFile(recording)) {
+                while (recordingFile.hasMoreEvents()) {
+                    RecordedEvent event = recordingFile.readEvent();
+                    switch (event.getEventType().getName()) {
+                        case EXECUTION_SAMPLE -> executionSample(event);
+                        case ALLOCATION_SAMPLE ->
+                                allocation(event, event.getLong("weight"), allocationSamples, allocationSampleStacks);
+                        case ALLOCATION_IN_NEW_TLAB ->
+                                allocation(event, event.getLong("tlabSize"), tlabAllocations, tlabAllocationStacks);
+                        case ALLOCATION_OUTSIDE_TLAB ->
+                                allocation(event, event.getLong("allocationSize"), tlabAllocations, tlabAllocationStacks);
+                        default -> {
+                            // Not used in the flamegraphs
+                        }
+                    }
+                }
+            }
+        }
+
+        Flamegraphs flamegraphs() {
+            return new Flamegraphs(frames, executionSamples, allocationSamples, tlabAllocations);
+        }
+
+        private void executionSample(RecordedEvent event) {
+            RecordedStackTrace stackTrace = event.getStackTrace();
+            if (stackTrace != null) {
+                int node = stackNode(executionSamples, executionStacks, stackTrace);
+                executionSamples.addWeight(node, 1);
+            }
+        }
+
+        private void allocation(RecordedEvent event, long weight, FrameTrie trie, Map<RecordedStackTrace, Integer> stacks) {
+            RecordedStackTrace stackTrace = event.getStackTrace();
+            if (stackTrace != null) {
+                int node = stackNode(trie, stacks, stackTrace);
+                RecordedClass objectClass = event.getClass("objectClass");
+                if (objectClass != null) {
+                    node = trie.child(node, classFrame(objectClass));
+                }
+                trie.addWeight(node, weight);
+            }
+        }
+
+        private int stackNode(FrameTrie trie, Map<RecordedStackTrace, Integer> cache, RecordedStackTrace stackTrace) {
+            Integer cached = cache.get(stackTrace);
+            if (cached != null) {
+                return cached;
+            }
+
+            // JFR stores the frames from the top of the stack, the trie starts from the bottom
+            List<RecordedFrame> stackFrames = stackTrace.getFrames();
+            int node = FrameTrie.ROOT;
+            for (int i = stackFrames.size() - 1; i >= 0; i--) {
+                node = trie.child(node, methodFrame(stackFrames.get(i).getMethod()));
+            }
+
+            putBounded(cache, stackTrace, node);
+            return node;
+        }
+
+        private int methodFrame(RecordedMethod method) {
+            Integer cached = methods.get(method);
+            if (cached != null) {
+                return cached;
+            }
+
+            int frame = frames.intern(method.getType().getName() + "." + method.getName());
+            putBounded(methods, method, frame);
+            return frame;
+        }
+
+        private int classFrame(RecordedClass objectClass) {
+            Integer cached = classes.get(objectClass);
+            if (cached != null) {
+                return cached;
+            }
+
+            int frame = frames.intern(objectClass.getName());
+            putBounded(classes, objectClass, frame);
+            return frame;
+        }
+
+        private static <K> void putBounded(Map<K, Integer> cache, K key, int value) {
+            if (cache.size() >= IDENTITY_CACHE_LIMIT) {
+                cache.clear();
+            }
+            cache.put(key, value);
+        }
+    }
+}
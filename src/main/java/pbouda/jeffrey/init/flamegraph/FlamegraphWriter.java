@@ -0,0 +1,127 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.flamegraph;
+
+import pbouda.jeffrey.init.IDGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+
+/**
+ * Writes the {@link FrameTrie} in two formats:
+ * <ul>
+ *     <li>collapsed stacks - a line per unique stack {@code frame1;frame2;...;frameN weight},
+ *     the format consumed by the common flamegraph tools</li>
+ *     <li>binary - the trie itself, which can be loaded without any aggregation (big-endian):
+ *     <pre>
+ *     int    magic ("JFG1")
+ *     int    frame count, followed by frame names (modified UTF-8, see {@link DataOutputStream#writeUTF(String)})
+ *     int    node count, followed by nodes (int parent, int frame, long self weight), the root node first
+ *            with the parent and frame -1, parents always precede their children
+ *     </pre>
+ *     </li>
+ * </ul>
+ * Both files are written into a temporary file which atomically replaces the output, the readers never see
+ * a partially written flamegraph.
+ */
+public abstract class FlamegraphWriter {
+
+    public static final int BINARY_MAGIC = 0x4A464731; // "JFG1"
+
+    private static final String TEMP_FILE_SUFFIX = ".tmp";
+
+    public static void writeCollapsed(FrameDictionary frames, FrameTrie trie, Path output) throws IOException {
+        writeAtomically(output, tempFile -> writeCollapsedTo(frames, trie, tempFile));
+    }
+
+    public static void writeBinary(FrameDictionary frames, FrameTrie trie, Path output) throws IOException {
+        writeAtomically(output, tempFile -> writeBinaryTo(frames, trie, tempFile));
+    }
+
+    private static void writeCollapsedTo(FrameDictionary frames, FrameTrie trie, Path output) throws IOException {
+        int[] path = new int[64];
+        try (BufferedWriter writer = Files.newBufferedWriter(output, StandardCharsets.UTF_8)) {
+            StringBuilder line = new StringBuilder();
+            for (int node = 1; node < trie.size(); node++) {
+                long weight = trie.weight(node);
+                if (weight == 0) {
+                    continue;
+                }
+
+                int depth = 0;
+                for (int current = node; current != FrameTrie.ROOT; current = trie.parent(current)) {
+                    if (depth == path.length) {
+                        path = Arrays.copyOf(path, depth << 1);
+                    }
+                    path[depth++] = trie.frame(current);
+                }
+
+                line.setLength(0);
+                for (int i = depth - 1; i >= 0; i--) {
+                    line.append(frames.frame(path[i]));
+                    if (i > 0) {
+                        line.append(';');
+                    }
+                }
+                line.append(' ').append(weight).append('\n');
+                writer.append(line);
+            }
+        }
+    }
+
+    private static void writeBinaryTo(FrameDictionary frames, FrameTrie trie, Path output) throws IOException {
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(output)))) {
+            out.writeInt(BINARY_MAGIC);
+
+            out.writeInt(frames.size());
+            for (int frame = 0; frame < frames.size(); frame++) {
+                out.writeUTF(frames.frame(frame));
+            }
+
+            out.writeInt(trie.size());
+            for (int node = 0; node < trie.size(); node++) {
+                out.writeInt(trie.parent(node));
+                out.writeInt(trie.frame(node));
+                out.writeLong(trie.weight(node));
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface OutputWriter {
+        void write(Path file) throws IOException;
+    }
+
+    private static void writeAtomically(Path output, OutputWriter writer) throws IOException {
+        Path tempFile = output.resolveSibling("." + output.getFileName() + "." + IDGenerator.generate() + TEMP_FILE_SUFFIX);
+        try {
+            writer.write(tempFile);
+            Files.move(tempFile, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.flamegraph;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Interns frame names into dense integer IDs, the tries then store only the IDs. Every unique frame
+ * is stored only once no matter how many stacks or events refer to it.
+ */
+public final class FrameDictionary {
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> frames = new ArrayList<>();
+
+    public int intern(String frame) {
+        Integer id = ids.get(frame);
+        if (id == null) {
+            id = frames.size();
+            ids.put(frame, id);
+            frames.add(frame);
+        }
+        return id;
+    }
+
+    public String frame(int id) {
+        return frames.get(id);
+    }
+
+    public int size() {
+        return frames.size();
+    }
+}
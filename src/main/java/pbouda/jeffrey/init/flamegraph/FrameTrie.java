@@ -0,0 +1,117 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.flamegraph;
+
+import pbouda.jeffrey.init.collection.LongIntHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Prefix tree of the stacks stored in parallel primitive arrays. Every node is identified by its index,
+ * and keeps the index of its parent, the ID of its frame (see {@link FrameDictionary}) and the self weight
+ * (weight of the stacks ending in the node). Children are found through a single primitive map keyed by
+ * {@code (parent << 32 | frame)}. The memory footprint depends only on the number of unique stack
+ * prefixes, not on the number of the added samples.
+ * <p>
+ * Nodes are always created after their parents, therefore, the parent of every node has a lower index.
+ */
+public final class FrameTrie {
+
+    public static final int ROOT = 0;
+
+    private static final int NO_NODE = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final LongIntHashMap children = new LongIntHashMap(INITIAL_CAPACITY, NO_NODE);
+    private int[] parents = new int[INITIAL_CAPACITY];
+    private int[] frames = new int[INITIAL_CAPACITY];
+    private long[] weights = new long[INITIAL_CAPACITY];
+    private int size;
+
+    public FrameTrie() {
+        parents[ROOT] = NO_NODE;
+        frames[ROOT] = NO_NODE;
+        size = 1;
+    }
+
+    /**
+     * Returns the child of the node with the given frame, the child is created if it does not exist yet.
+     */
+    public int child(int node, int frame) {
+        long key = ((long) node << 32) | (frame & 0xFFFFFFFFL);
+        int child = children.get(key);
+        if (child == NO_NODE) {
+            child = size++;
+            if (child == parents.length) {
+                int newCapacity = parents.length << 1;
+                parents = Arrays.copyOf(parents, newCapacity);
+                frames = Arrays.copyOf(frames, newCapacity);
+                weights = Arrays.copyOf(weights, newCapacity);
+            }
+            parents[child] = node;
+            frames[child] = frame;
+            children.put(key, child);
+        }
+        return child;
+    }
+
+    public void addWeight(int node, long weight) {
+        weights[node] += weight;
+    }
+
+    /**
+     * Merges all nodes of the other trie into this one.
+     *
+     * @param other        trie to merge
+     * @param frameMapping mapping of the frame IDs of the other trie to the frame IDs of this trie
+     */
+    public void merge(FrameTrie other, int[] frameMapping) {
+        int[] nodeMapping = new int[other.size];
+        nodeMapping[ROOT] = ROOT;
+        for (int node = 1; node < other.size; node++) {
+            int mapped = child(nodeMapping[other.parents[node]], frameMapping[other.frames[node]]);
+            nodeMapping[node] = mapped;
+            weights[mapped] += other.weights[node];
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int parent(int node) {
+        return parents[node];
+    }
+
+    public int frame(int node) {
+        return frames[node];
+    }
+
+    public long weight(int node) {
+        return weights[node];
+    }
+
+    public long totalWeight() {
+        long total = 0;
+        for (int node = 0; node < size; node++) {
+            total += weights[node];
+        }
+        return total;
+    }
+}
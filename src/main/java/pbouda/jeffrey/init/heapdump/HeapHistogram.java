@@ -0,0 +1,38 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.heapdump;
+
+import java.util.List;
+
+public record HeapHistogram(
+        String heapDumpFile,
+        long createdAt,
+        int idSize,
+        boolean truncated,
+        long totalInstances,
+        long totalShallowSize,
+        List<ClassEntry> classes,
+        List<ArrayEntry> largestArrays) {
+
+    public record ClassEntry(String className, long instances, long shallowSize) {
+    }
+
+    public record ArrayEntry(String objectId, String className, long length, long shallowSize) {
+    }
+}
@@ -0,0 +1,471 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.heapdump;
+
+import pbouda.jeffrey.init.collection.LongIntHashMap;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Builds a class histogram from an HPROF heap dump in a single streaming pass over the memory-mapped file.
+ * Nothing from the object graph is retained, statistics are aggregated into primitive arrays indexed by
+ * the class ID, therefore, the memory footprint depends only on the number of loaded classes, not on the
+ * size of the dump. Class names are resolved in a second pass that visits only the top-level records
+ * and skips the heap dump segments entirely.
+ * <p>
+ * Shallow sizes are estimated from the data stored in the dump (object header + field/element data
+ * aligned to 8 bytes), references are counted with the identifier size of the dump.
+ */
+public class HeapHistogramParser {
+
+    private static final String HPROF_FORMAT_PREFIX = "JAVA PROFILE ";
+    private static final int HPROF_FORMAT_MAX_LENGTH = 32;
+
+    /* Top-level records */
+    private static final int TAG_UTF8 = 0x01;
+    private static final int TAG_LOAD_CLASS = 0x02;
+    private static final int TAG_HEAP_DUMP = 0x0C;
+    private static final int TAG_HEAP_DUMP_SEGMENT = 0x1C;
+
+    /* Heap dump sub-records */
+    private static final int ROOT_UNKNOWN = 0xFF;
+    private static final int ROOT_JNI_GLOBAL = 0x01;
+    private static final int ROOT_JNI_LOCAL = 0x02;
+    private static final int ROOT_JAVA_FRAME = 0x03;
+    private static final int ROOT_NATIVE_STACK = 0x04;
+    private static final int ROOT_STICKY_CLASS = 0x05;
+    private static final int ROOT_THREAD_BLOCK = 0x06;
+    private static final int ROOT_MONITOR_USED = 0x07;
+    private static final int ROOT_THREAD_OBJECT = 0x08;
+    private static final int CLASS_DUMP = 0x20;
+    private static final int INSTANCE_DUMP = 0x21;
+    private static final int OBJ_ARRAY_DUMP = 0x22;
+    private static final int PRIM_ARRAY_DUMP = 0x23;
+
+    /* Basic types, the index corresponds to the type code in HPROF */
+    private static final int TYPE_OBJECT = 2;
+    private static final int[] PRIMITIVE_SIZES = {-1, -1, -1, -1, 1, 2, 4, 8, 1, 2, 4, 8};
+    private static final String[] PRIMITIVE_ARRAY_NAMES = {
+            null, null, null, null, "boolean[]", "char[]", "float[]", "double[]", "byte[]", "short[]", "int[]", "long[]"};
+
+    /* Estimation of the shallow size on 64-bit JVM with compressed class pointers */
+    private static final long OBJECT_HEADER_SIZE = 12;
+    private static final long ARRAY_HEADER_SIZE = 16;
+    private static final long OBJECT_ALIGNMENT = 8;
+
+    private static final int NOT_FOUND = -1;
+    private static final int INITIAL_CLASSES = 8192;
+
+    private final Path heapDumpFile;
+    private final LargestArrays largestArrays;
+
+    private final LongIntHashMap classIndexes = new LongIntHashMap(INITIAL_CLASSES, NOT_FOUND);
+    private long[] classNameIds = new long[INITIAL_CLASSES];
+    private long[] instanceCounts = new long[INITIAL_CLASSES];
+    private long[] shallowSizes = new long[INITIAL_CLASSES];
+    private int classCount;
+
+    private final long[] primitiveArrayCounts = new long[PRIMITIVE_SIZES.length];
+    private final long[] primitiveArraySizes = new long[PRIMITIVE_SIZES.length];
+
+    /**
+     * The parser keeps the statistics of the single heap dump, create a new instance for every parsing.
+     *
+     * @param heapDumpFile     HPROF file to parse
+     * @param topArraysLimit number of the largest arrays to keep in the result
+     */
+    public HeapHistogramParser(Path heapDumpFile, int topArraysLimit) {
+        this.heapDumpFile = heapDumpFile;
+        this.largestArrays = new LargestArrays(topArraysLimit);
+    }
+
+    public HeapHistogram parse() throws IOException {
+        try (HprofReader reader = new HprofReader(heapDumpFile)) {
+            String format = reader.cstring(HPROF_FORMAT_MAX_LENGTH);
+            if (!format.startsWith(HPROF_FORMAT_PREFIX)) {
+                throw new IOException("Not an HPROF file (compressed heap dumps are not supported): " + heapDumpFile);
+            }
+            reader.setIdSize((int) reader.u4());
+            long createdAt = reader.u8();
+            long recordsStart = reader.position();
+
+            boolean truncated = readRecords(reader);
+            String[] classNames = resolveClassNames(reader, recordsStart);
+            return buildHistogram(reader.idSize(), createdAt, truncated, classNames);
+        }
+    }
+
+    /**
+     * Reads all top-level records and aggregates the content of heap dump segments.
+     *
+     * @return {@code true} if the file ends in the middle of the record
+     */
+    private boolean readRecords(HprofReader reader) throws IOException {
+        try {
+            while (reader.hasRemaining()) {
+                int tag = reader.u1();
+                reader.skip(Integer.BYTES); // time offset
+                long length = reader.u4();
+                long recordEnd = reader.position() + length;
+
+                switch (tag) {
+                    case TAG_LOAD_CLASS -> {
+                        reader.skip(Integer.BYTES); // class serial number
+                        long classId = reader.id();
+                        reader.skip(Integer.BYTES); // stack trace serial number
+                        // The index must be resolved first, it can grow the arrays
+                        int index = classIndex(classId);
+                        classNameIds[index] = reader.id();
+                    }
+                    case TAG_HEAP_DUMP, TAG_HEAP_DUMP_SEGMENT -> readHeapDump(reader, Math.min(recordEnd, reader.fileSize()));
+                    default -> {
+                        // Not needed for the histogram
+                    }
+                }
+
+                if (recordEnd > reader.fileSize()) {
+                    return true;
+                }
+                reader.seek(recordEnd);
+            }
+            return false;
+        } catch (EOFException e) {
+            return true;
+        }
+    }
+
+    private void readHeapDump(HprofReader reader, long end) throws IOException {
+        int idSize = reader.idSize();
+        while (reader.position() < end) {
+            int subTag = reader.u1();
+            switch (subTag) {
+                case ROOT_UNKNOWN, ROOT_STICKY_CLASS, ROOT_MONITOR_USED -> reader.skip(idSize);
+                case ROOT_JNI_GLOBAL -> reader.skip(2L * idSize);
+                case ROOT_JNI_LOCAL, ROOT_JAVA_FRAME, ROOT_THREAD_OBJECT -> reader.skip(idSize + 2L * Integer.BYTES);
+                case ROOT_NATIVE_STACK, ROOT_THREAD_BLOCK -> reader.skip(idSize + (long) Integer.BYTES);
+                case CLASS_DUMP -> skipClassDump(reader);
+                case INSTANCE_DUMP -> {
+                    reader.skip(idSize + (long) Integer.BYTES); // object ID, stack trace serial number
+                    long classId = reader.id();
+                    long fieldBytes = reader.u4();
+                    reader.skip(fieldBytes);
+
+                    int index = classIndex(classId);
+                    instanceCounts[index]++;
+                    shallowSizes[index] += align(OBJECT_HEADER_SIZE + fieldBytes);
+                }
+                case OBJ_ARRAY_DUMP -> {
+                    long objectId = reader.id();
+                    reader.skip(Integer.BYTES); // stack trace serial number
+                    long length = reader.u4();
+                    long arrayClassId = reader.id();
+                    reader.skip(length * idSize);
+
+                    int index = classIndex(arrayClassId);
+                    long size = align(ARRAY_HEADER_SIZE + length * idSize);
+                    instanceCounts[index]++;
+                    shallowSizes[index] += size;
+                    largestArrays.offer(objectId, index, length, size);
+                }
+                case PRIM_ARRAY_DUMP -> {
+                    long objectId = reader.id();
+                    reader.skip(Integer.BYTES); // stack trace serial number
+                    long length = reader.u4();
+                    int type = reader.u1();
+                    long dataSize = length * primitiveSize(type);
+                    reader.skip(dataSize);
+
+                    long size = align(ARRAY_HEADER_SIZE + dataSize);
+
+                    primitiveArrayCounts[type]++;
+                    primitiveArraySizes[type] += size;
+                    largestArrays.offer(objectId, -type, length, size);
+                }
+                default -> throw new IOException(
+                        "Unknown heap dump sub-record: tag=0x" + Integer.toHexString(subTag) + " position=" + (reader.position() - 1));
+            }
+        }
+    }
+
+    private static void skipClassDump(HprofReader reader) throws IOException {
+        int idSize = reader.idSize();
+        // class ID, stack trace serial number, super class, class loader, signers,
+        // protection domain, 2x reserved, instance size
+        reader.skip(idSize + Integer.BYTES + 6L * idSize + Integer.BYTES);
+
+        int constantPoolSize = reader.u2();
+        for (int i = 0; i < constantPoolSize; i++) {
+            reader.skip(Short.BYTES); // constant pool index
+            int type = reader.u1();
+            reader.skip(valueSize(type, idSize));
+        }
+
+        int staticFields = reader.u2();
+        for (int i = 0; i < staticFields; i++) {
+            reader.skip(idSize); // field name
+            int type = reader.u1();
+            reader.skip(valueSize(type, idSize));
+        }
+
+        int instanceFields = reader.u2();
+        reader.skip(instanceFields * (idSize + 1L)); // field name + type
+    }
+
+    /**
+     * Visits only top-level records and picks the UTF8 strings used as names of the classes
+     * collected in the first pass.
+     */
+    private String[] resolveClassNames(HprofReader reader, long recordsStart) throws IOException {
+        LongIntHashMap nameSlots = new LongIntHashMap(classCount, NOT_FOUND);
+        for (int i = 0; i < classCount; i++) {
+            long nameId = classNameIds[i];
+            if (nameId != 0 && !nameSlots.containsKey(nameId)) {
+                nameSlots.put(nameId, nameSlots.size());
+            }
+        }
+
+        String[] names = new String[nameSlots.size()];
+        int resolved = 0;
+        reader.seek(recordsStart);
+        try {
+            while (resolved < names.length && reader.hasRemaining()) {
+                int tag = reader.u1();
+                reader.skip(Integer.BYTES); // time offset
+                long length = reader.u4();
+                long recordEnd = reader.position() + length;
+
+                if (tag == TAG_UTF8) {
+                    int slot = nameSlots.get(reader.id());
+                    if (slot != NOT_FOUND && names[slot] == null) {
+                        byte[] content = reader.bytes((int) (length - reader.idSize()));
+                        names[slot] = new String(content, StandardCharsets.UTF_8);
+                        resolved++;
+                    }
+                }
+                reader.seek(recordEnd);
+            }
+        } catch (EOFException e) {
+            // Truncated file, keep the names resolved so far
+        }
+
+        String[] classNames = new String[classCount];
+        for (int i = 0; i < classCount; i++) {
+            int slot = nameSlots.get(classNameIds[i]);
+            classNames[i] = slot != NOT_FOUND && names[slot] != null
+                    ? toJavaName(names[slot])
+                    : "<unknown class 0x" + Long.toHexString(classNameIds[i]) + ">";
+        }
+        return classNames;
+    }
+
+    private HeapHistogram buildHistogram(int idSize, long createdAt, boolean truncated, String[] classNames) {
+        List<HeapHistogram.ClassEntry> classes = new ArrayList<>();
+        for (int i = 0; i < classCount; i++) {
+            if (instanceCounts[i] > 0) {
+                classes.add(new HeapHistogram.ClassEntry(classNames[i], instanceCounts[i], shallowSizes[i]));
+            }
+        }
+        for (int type = 0; type < PRIMITIVE_ARRAY_NAMES.length; type++) {
+            if (primitiveArrayCounts[type] > 0) {
+                classes.add(new HeapHistogram.ClassEntry(
+                        PRIMITIVE_ARRAY_NAMES[type], primitiveArrayCounts[type], primitiveArraySizes[type]));
+            }
+        }
+        classes.sort(Comparator.comparingLong(HeapHistogram.ClassEntry::shallowSize).reversed());
+
+        long totalInstances = 0;
+        long totalShallowSize = 0;
+        for (HeapHistogram.ClassEntry entry : classes) {
+            totalInstances += entry.instances();
+            totalShallowSize += entry.shallowSize();
+        }
+
+        List<HeapHistogram.ArrayEntry> arrays = largestArrays.sorted().stream()
+                .map(array -> new HeapHistogram.ArrayEntry(
+                        "0x" + Long.toHexString(array.objectId()),
+                        array.classRef() >= 0 ? classNames[array.classRef()] : PRIMITIVE_ARRAY_NAMES[-array.classRef()],
+                        array.length(),
+                        array.size()))
+                .toList();
+
+        return new HeapHistogram(
+                heapDumpFile.toString(),
+                createdAt,
+                idSize,
+                truncated,
+                totalInstances,
+                totalShallowSize,
+                classes,
+                arrays);
+    }
+
+    private int classIndex(long classId) {
+        int index = classIndexes.get(classId);
+        if (index == NOT_FOUND) {
+            index = classCount++;
+            if (index == classNameIds.length) {
+                int newLength = classNameIds.length << 1;
+                classNameIds = Arrays.copyOf(classNameIds, newLength);
+                instanceCounts = Arrays.copyOf(instanceCounts, newLength);
+                shallowSizes = Arrays.copyOf(shallowSizes, newLength);
+            }
+            classIndexes.put(classId, index);
+        }
+        return index;
+    }
+
+    private static int valueSize(int type, int idSize) throws IOException {
+        return type == TYPE_OBJECT ? idSize : primitiveSize(type);
+    }
+
+    private static int primitiveSize(int type) throws IOException {
+        if (type < 0 || type >= PRIMITIVE_SIZES.length || PRIMITIVE_SIZES[type] < 0) {
+            throw new IOException("Unknown basic type in HPROF file: " + type);
+        }
+        return PRIMITIVE_SIZES[type];
+    }
+
+    private static long align(long size) {
+        return (size + OBJECT_ALIGNMENT - 1) & -OBJECT_ALIGNMENT;
+    }
+
+    /**
+     * Converts the internal JVM names (e.g. {@code java/lang/String}, {@code [[Ljava/lang/Object;}, {@code [I})
+     * into the names used in the Java source code.
+     */
+    static String toJavaName(String name) {
+        int dimensions = 0;
+        while (dimensions < name.length() && name.charAt(dimensions) == '[') {
+            dimensions++;
+        }
+        if (dimensions == 0 || dimensions == name.length()) {
+            return name.replace('/', '.');
+        }
+
+        String element = name.substring(dimensions);
+        String base = switch (element.charAt(0)) {
+            case 'Z' -> "boolean";
+            case 'C' -> "char";
+            case 'F' -> "float";
+            case 'D' -> "double";
+            case 'B' -> "byte";
+            case 'S' -> "short";
+            case 'I' -> "int";
+            case 'J' -> "long";
+            case 'L' -> element.substring(1, element.endsWith(";") ? element.length() - 1 : element.length());
+            default -> element;
+        };
+        return base.replace('/', '.') + "[]".repeat(dimensions);
+    }
+
+    /**
+     * Fixed-size min-heap of the largest arrays stored in parallel primitive arrays. The class reference
+     * is an index of the class for object arrays, or a negated basic type for primitive arrays.
+     */
+    private static final class LargestArrays {
+
+        private record Array(long objectId, int classRef, long length, long size) {
+        }
+
+        private final long[] objectIds;
+        private final int[] classRefs;
+        private final long[] lengths;
+        private final long[] sizes;
+        private int count;
+
+        LargestArrays(int capacity) {
+            this.objectIds = new long[capacity];
+            this.classRefs = new int[capacity];
+            this.lengths = new long[capacity];
+            this.sizes = new long[capacity];
+        }
+
+        void offer(long objectId, int classRef, long length, long size) {
+            if (count < sizes.length) {
+                set(count, objectId, classRef, length, size);
+                siftUp(count++);
+            } else if (count > 0 && size > sizes[0]) {
+                set(0, objectId, classRef, length, size);
+                siftDown(0);
+            }
+        }
+
+        List<Array> sorted() {
+            List<Array> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                result.add(new Array(objectIds[i], classRefs[i], lengths[i], sizes[i]));
+            }
+            result.sort(Comparator.comparingLong(Array::size).reversed());
+            return result;
+        }
+
+        private void siftUp(int index) {
+            while (index > 0) {
+                int parent = (index - 1) >>> 1;
+                if (sizes[parent] <= sizes[index]) {
+                    return;
+                }
+                swap(parent, index);
+                index = parent;
+            }
+        }
+
+        private void siftDown(int index) {
+            while (true) {
+                int smallest = index;
+                int left = 2 * index + 1;
+                int right = left + 1;
+                if (left < count && sizes[left] < sizes[smallest]) {
+                    smallest = left;
+                }
+                if (right < count && sizes[right] < sizes[smallest]) {
+                    smallest = right;
+                }
+                if (smallest == index) {
+                    return;
+                }
+                swap(smallest, index);
+                index = smallest;
+            }
+        }
+
+        private void set(int index, long objectId, int classRef, long length, long size) {
+            objectIds[index] = objectId;
+            classRefs[index] = classRef;
+            lengths[index] = length;
+            sizes[index] = size;
+        }
+
+        private void swap(int i, int j) {
+            long objectId = objectIds[i];
+            int classRef = classRefs[i];
+            long length = lengths[i];
+            long size = sizes[i];
+            set(i, objectIds[j], classRefs[j], lengths[j], sizes[j]);
+            set(j, objectId, classRef, length, size);
+        }
+    }
+}
@@ -0,0 +1,158 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.heapdump;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Sequential reader of HPROF files backed by a sliding memory-mapped window. Only a single window
+ * is mapped at a time, therefore, the reader is able to process dumps much larger than the heap
+ * or the addressable range of a single {@link MappedByteBuffer}. Values are read in big-endian
+ * order as required by the HPROF format.
+ */
+final class HprofReader implements AutoCloseable {
+
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024;
+
+    private final FileChannel channel;
+    private final long fileSize;
+
+    private MappedByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+    private long position;
+    private int idSize = Long.BYTES;
+
+    HprofReader(Path file) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.fileSize = channel.size();
+    }
+
+    long position() {
+        return position;
+    }
+
+    long fileSize() {
+        return fileSize;
+    }
+
+    boolean hasRemaining() {
+        return position < fileSize;
+    }
+
+    int idSize() {
+        return idSize;
+    }
+
+    void setIdSize(int idSize) {
+        if (idSize != Integer.BYTES && idSize != Long.BYTES) {
+            throw new IllegalArgumentException("Unsupported identifier size in HPROF file: " + idSize);
+        }
+        this.idSize = idSize;
+    }
+
+    void seek(long newPosition) {
+        this.position = newPosition;
+    }
+
+    void skip(long bytes) {
+        this.position += bytes;
+    }
+
+    int u1() throws IOException {
+        ensure(Byte.BYTES);
+        return window.get(offset(Byte.BYTES)) & 0xFF;
+    }
+
+    int u2() throws IOException {
+        ensure(Short.BYTES);
+        return window.getShort(offset(Short.BYTES)) & 0xFFFF;
+    }
+
+    long u4() throws IOException {
+        ensure(Integer.BYTES);
+        return window.getInt(offset(Integer.BYTES)) & 0xFFFFFFFFL;
+    }
+
+    long u8() throws IOException {
+        ensure(Long.BYTES);
+        return window.getLong(offset(Long.BYTES));
+    }
+
+    long id() throws IOException {
+        return idSize == Integer.BYTES ? u4() : u8();
+    }
+
+    /**
+     * Reads a zero-terminated string, used only for the format name in the file header.
+     */
+    String cstring(int maxLength) throws IOException {
+        StringBuilder result = new StringBuilder();
+        for (int i = 0; i < maxLength; i++) {
+            int c = u1();
+            if (c == 0) {
+                return result.toString();
+            }
+            result.append((char) c);
+        }
+        return result.toString();
+    }
+
+    byte[] bytes(int length) throws IOException {
+        ensure(length);
+        byte[] result = new byte[length];
+        window.get(offset(length), result);
+        return result;
+    }
+
+    private int offset(int bytes) {
+        int offset = (int) (position - windowStart);
+        position += bytes;
+        return offset;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > fileSize) {
+            throw new EOFException("Unexpected end of HPROF file: position=" + position + " file_size=" + fileSize);
+        }
+        if (window == null || position < windowStart || position + bytes > windowEnd) {
+            remap(bytes);
+        }
+    }
+
+    private void remap(int minimumBytes) throws IOException {
+        long length = Math.min(Math.max(WINDOW_SIZE, minimumBytes), fileSize - position);
+        this.window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+        this.window.order(ByteOrder.BIG_ENDIAN);
+        this.windowStart = position;
+        this.windowEnd = position + length;
+    }
+
+    @Override
+    public void close() throws IOException {
+        window = null;
+        channel.close();
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.jfr;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Fixed-size header at the beginning of every chunk of a JFR recording. The header is read without
+ * decoding any events, it's enough to find out the boundaries of the chunks and whether the chunk
+ * was properly finished by the recorder.
+ *
+ * @param offset             absolute position of the chunk in the file
+ * @param size               size of the chunk including the header (can be outdated for unfinished chunks)
+ * @param constantPoolOffset offset of the last checkpoint event relative to the chunk start
+ * @param metadataOffset     offset of the metadata event relative to the chunk start
+ * @param startNanos         start of the chunk in nanoseconds since epoch
+ * @param durationNanos      duration of the chunk in nanoseconds
+ * @param state              generation of the chunk, {@code 0} means that the chunk is finished
+ * @param flags              chunk flags (compressed integers, final chunk)
+ */
+public record ChunkHeader(
+        long offset,
+        int major,
+        int minor,
+        long size,
+        long constantPoolOffset,
+        long metadataOffset,
+        long startNanos,
+        long durationNanos,
+        long startTicks,
+        long ticksPerSecond,
+        int state,
+        int flags) {
+
+    public static final int HEADER_SIZE = 68;
+
+    private static final int MAGIC = 0x464C5200; // "FLR\0"
+    private static final int STATE_FINISHED = 0;
+    private static final int STATE_POSITION = 64;
+    private static final int FLAGS_POSITION = 67;
+
+    /**
+     * Parses the chunk header from the buffer (big-endian) at the given index.
+     *
+     * @param buffer buffer containing at least {@link #HEADER_SIZE} bytes from the index
+     * @param index  position of the header in the buffer
+     * @param offset absolute position of the chunk in the file
+     * @return parsed header or {@code null} if the data does not start with the chunk magic
+     */
+    public static ChunkHeader read(ByteBuffer buffer, int index, long offset) {
+        if (buffer.getInt(index) != MAGIC) {
+            return null;
+        }
+
+        return new ChunkHeader(
+                offset,
+                buffer.getShort(index + 4) & 0xFFFF,
+                buffer.getShort(index + 6) & 0xFFFF,
+                buffer.getLong(index + 8),
+                buffer.getLong(index + 16),
+                buffer.getLong(index + 24),
+                buffer.getLong(index + 32),
+                buffer.getLong(index + 40),
+                buffer.getLong(index + 48),
+                buffer.getLong(index + 56),
+                buffer.get(index + STATE_POSITION) & 0xFF,
+                buffer.get(index + FLAGS_POSITION) & 0xFF);
+    }
+
+    public boolean finished() {
+        return state == STATE_FINISHED;
+    }
+
+    public long end() {
+        return offset + size;
+    }
+
+    public long endNanos() {
+        return startNanos + durationNanos;
+    }
+}
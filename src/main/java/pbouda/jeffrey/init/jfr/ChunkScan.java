@@ -0,0 +1,40 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.jfr;
+
+import java.util.List;
+
+/**
+ * Result of walking the chunk headers of a single JFR file.
+ *
+ * @param finishedChunks headers of the finished chunks from the beginning of the file
+ * @param finishedEnd    end of the last finished chunk, everything after this position is incomplete
+ * @param fileSize       size of the file at the time of the scan
+ * @param problem        description of the first incomplete or corrupted chunk, {@code null} if there is none
+ */
+public record ChunkScan(List<ChunkHeader> finishedChunks, long finishedEnd, long fileSize, String problem) {
+
+    public boolean complete() {
+        return problem == null && finishedEnd == fileSize;
+    }
+
+    public boolean repairable() {
+        return !complete() && !finishedChunks.isEmpty();
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.jfr;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+public abstract class JfrChunks {
+
+    public static final String JFR_EXTENSION = ".jfr";
+
+    private static final long MAP_WINDOW_SIZE = 1L << 30;
+
+    /**
+     * Walks the chunk headers from the beginning of the file through a memory-mapped view. Only the pages
+     * containing the headers are touched, events are never decoded. The walk stops at the first chunk
+     * which is not finished, exceeds the file, or does not start with a valid header.
+     *
+     * @param channel channel of the JFR file
+     * @return finished chunks and the description of the first problem
+     */
+    public static ChunkScan scan(FileChannel channel) throws IOException {
+        long fileSize = channel.size();
+        List<ChunkHeader> chunks = new ArrayList<>();
+        if (fileSize == 0) {
+            return new ChunkScan(chunks, 0, 0, "Empty file");
+        }
+
+        MappedByteBuffer window = null;
+        long windowStart = 0;
+        long windowEnd = 0;
+
+        long offset = 0;
+        while (offset < fileSize) {
+            if (offset + ChunkHeader.HEADER_SIZE > fileSize) {
+                return new ChunkScan(chunks, offset, fileSize, "Truncated chunk header: offset=" + offset);
+            }
+
+            if (window == null || offset + ChunkHeader.HEADER_SIZE > windowEnd) {
+                long length = Math.min(MAP_WINDOW_SIZE, fileSize - offset);
+                window = channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+                windowStart = offset;
+                windowEnd = offset + length;
+            }
+
+            ChunkHeader header = ChunkHeader.read(window, (int) (offset - windowStart), offset);
+            String problem = validate(header, offset, fileSize);
+            if (problem != null) {
+                return new ChunkScan(chunks, offset, fileSize, problem);
+            }
+
+            chunks.add(header);
+            offset = header.end();
+        }
+        return new ChunkScan(chunks, offset, fileSize, null);
+    }
+
+    /**
+     * Returns the position right after the last finished chunk. Finished chunks are never modified
+     * by the recorder anymore, everything after the returned position belongs to a chunk that can be
+     * still rewritten (or is truncated).
+     *
+     * @param channel channel of the JFR file
+     * @return end of the last finished chunk, or {@code 0} if the file contains no finished chunk
+     */
+    public static long finishedChunksEnd(FileChannel channel) throws IOException {
+        return scan(channel).finishedEnd();
+    }
+
+    private static String validate(ChunkHeader header, long offset, long fileSize) {
+        if (header == null) {
+            return "Invalid chunk magic: offset=" + offset;
+        }
+        if (!header.finished()) {
+            return "Unfinished chunk: offset=" + offset + " generation=" + header.state();
+        }
+        if (header.size() < ChunkHeader.HEADER_SIZE) {
+            return "Invalid chunk size: offset=" + offset + " chunk_size=" + header.size();
+        }
+        // Compared to the remaining size, the end of a corrupted huge chunk overflows
+        if (header.size() > fileSize - offset) {
+            return "Chunk exceeds the file: offset=" + offset + " chunk_size=" + header.size() + " file_size=" + fileSize;
+        }
+        if (header.metadataOffset() <= 0 || header.metadataOffset() >= header.size()
+                || header.constantPoolOffset() <= 0 || header.constantPoolOffset() >= header.size()) {
+            return "Invalid metadata or constant pool offset: offset=" + offset
+                    + " metadata_offset=" + header.metadataOffset()
+                    + " constant_pool_offset=" + header.constantPoolOffset();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.jfr;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import pbouda.jeffrey.init.FileSystemUtils;
+import pbouda.jeffrey.init.IDGenerator;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Predicate;
+
+/**
+ * Creates a recording containing only the events from the given time window. The chunks overlapping
+ * the window are selected by their headers, the chunks entirely inside the window are copied as they are,
+ * and only the chunks crossing the boundaries of the window are parsed and filtered (concurrently).
+ * The resulting parts are concatenated in the chronological order into a single recording.
+ */
+public class RecordingSlicer {
+
+    public static final String SLICE_PREFIX = "slice-";
+
+    private static final String TEMP_FILE_PREFIX = ".slice-";
+
+    public record SliceResult(int copiedChunks, int filteredChunks, int skippedRecordings, long outputBytes) {
+
+        public int selectedChunks() {
+            return copiedChunks + filteredChunks;
+        }
+    }
+
+    private record SelectedChunk(Path recording, ChunkHeader header, boolean inside) {
+    }
+
+    private final int parallelism;
+
+    public RecordingSlicer(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Returns the recordings in the session directory, the slices created from them are not included.
+     */
+    public static List<Path> sessionRecordings(Path sessionPath) {
+        return FileSystemUtils.allFilesInDirectory(sessionPath).stream()
+                .filter(path -> path.getFileName().toString().endsWith(JfrChunks.JFR_EXTENSION))
+                .filter(path -> !path.getFileName().toString().startsWith(SLICE_PREFIX))
+                .sorted()
+                .toList();
+    }
+
+    /**
+     * @param recordings recordings to select the chunks from
+     * @param from       start of the time window (inclusive)
+     * @param to         end of the time window (inclusive)
+     * @param output     resulting recording, it's not created if no chunk overlaps the window
+     */
+    public SliceResult slice(List<Path> recordings, Instant from, Instant to, Path output) throws IOException {
+        long fromNanos = toEpochNanos(from);
+        long toNanos = toEpochNanos(to);
+
+        List<SelectedChunk> selected = new ArrayList<>();
+        int skippedRecordings = 0;
+        for (Path recording : recordings) {
+            ChunkScan scan;
+            try (FileChannel channel = FileChannel.open(recording, StandardOpenOption.READ)) {
+                scan = JfrChunks.scan(channel);
+            }
+            if (!scan.complete()) {
+                skippedRecordings++;
+            }
+
+            // Unfinished chunks cannot be parsed, only the finished ones are used
+            for (ChunkHeader header : scan.finishedChunks()) {
+                if (header.startNanos() <= toNanos && header.endNanos() >= fromNanos) {
+                    boolean inside = header.startNanos() >= fromNanos && header.endNanos() <= toNanos;
+                    selected.add(new SelectedChunk(recording, header, inside));
+                }
+            }
+        }
+
+        if (selected.isEmpty()) {
+            return new SliceResult(0, 0, skippedRecordings, 0);
+        }
+        selected.sort(Comparator.comparingLong(chunk -> chunk.header().startNanos()));
+
+        Path outputDir = output.toAbsolutePath().getParent();
+        Predicate<RecordedEvent> filter = event ->
+                !event.getEndTime().isBefore(from) && !event.getStartTime().isAfter(to);
+
+        List<Path> parts = new ArrayList<>();
+        try {
+            try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+                List<Future<Path>> futures = new ArrayList<>();
+                for (SelectedChunk chunk : selected) {
+                    futures.add(executor.submit(() -> chunk.inside()
+                            ? extractChunk(chunk, outputDir)
+                            : filterChunk(chunk, outputDir, filter)));
+                }
+
+                // Collect all the parts (even after a failure) to clean up the temporary files
+                IOException failure = null;
+                for (Future<Path> future : futures) {
+                    try {
+                        parts.add(future.get());
+                    } catch (ExecutionException e) {
+                        if (failure == null) {
+                            failure = new IOException("Cannot slice the chunk: " + e.getCause().getMessage(), e.getCause());
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new IOException("Slicing was interrupted", e);
+                    }
+                }
+                if (failure != null) {
+                    throw failure;
+                }
+            }
+
+            long outputBytes = concatenate(parts, output);
+            int copied = (int) selected.stream().filter(SelectedChunk::inside).count();
+            return new SliceResult(copied, selected.size() - copied, skippedRecordings, outputBytes);
+        } finally {
+            for (Path part : parts) {
+                Files.deleteIfExists(part);
+            }
+        }
+    }
+
+    private static Path extractChunk(SelectedChunk chunk, Path tempDir) throws IOException {
+        Path part = createTempFile(tempDir);
+        try (FileChannel source = FileChannel.open(chunk.recording(), StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            FileSystemUtils.transfer(source, target, chunk.header().offset(), chunk.header().size());
+        } catch (IOException e) {
+            Files.deleteIfExists(part);
+            throw e;
+        }
+        return part;
+    }
+
+    private static Path filterChunk(SelectedChunk chunk, Path tempDir, Predicate<RecordedEvent> filter) throws IOException {
+        Path extracted = extractChunk(chunk, tempDir);
+        try {
+            Path part = createTempFile(tempDir);
+            try (RecordingFile recordingFile = new RecordingFile(extracted)) {
+                recordingFile.write(part, filter);
+            } catch (IOException e) {
+                Files.deleteIfExists(part);
+                throw e;
+            }
+            return part;
+        } finally {
+            Files.deleteIfExists(extracted);
+        }
+    }
+
+    /**
+     * JFR recordings can be concatenated, the chunks are simply appended into the temporary file
+     * which is then atomically moved to the output.
+     */
+    private static long concatenate(List<Path> parts, Path output) throws IOException {
+        Path tempOutput = createTempFile(output.toAbsolutePath().getParent());
+        try {
+            try (FileChannel target = FileChannel.open(tempOutput, StandardOpenOption.WRITE)) {
+                for (Path part : parts) {
+                    try (FileChannel source = FileChannel.open(part, StandardOpenOption.READ)) {
+                        FileSystemUtils.transfer(source, target, 0, source.size());
+                    }
+                }
+            }
+            Files.move(tempOutput, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return Files.size(output);
+        } finally {
+            Files.deleteIfExists(tempOutput);
+        }
+    }
+
+    /**
+     * Temporary files are created next to the output (the recordings can be large for the system temp directory)
+     * with the default permissions, the last one becomes the output itself.
+     */
+    private static Path createTempFile(Path dir) throws IOException {
+        return Files.createFile(dir.resolve(TEMP_FILE_PREFIX + IDGenerator.generate() + JfrChunks.JFR_EXTENSION));
+    }
+
+    private static long toEpochNanos(Instant instant) {
+        return instant.getEpochSecond() * 1_000_000_000L + instant.getNano();
+    }
+}
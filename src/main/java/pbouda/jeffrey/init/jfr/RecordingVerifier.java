@@ -0,0 +1,116 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.jfr;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Verifies the chunk structure of JFR recordings (see {@link JfrChunks#scan(FileChannel)}) and repairs
+ * the recordings with incomplete chunks left by crashed JVMs by truncating them to the last finished chunk.
+ */
+public class RecordingVerifier {
+
+    private final int parallelism;
+
+    public RecordingVerifier(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Finds all JFR recordings in the given directory (workspace, project, session) and its subdirectories,
+     * or returns the path itself if it's a file.
+     */
+    public static List<Path> findRecordings(Path path) throws IOException {
+        if (Files.isRegularFile(path)) {
+            return List.of(path);
+        }
+
+        try (var stream = Files.walk(path)) {
+            return stream
+                    .filter(Files::isRegularFile)
+                    .filter(file -> file.getFileName().toString().endsWith(JfrChunks.JFR_EXTENSION))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    /**
+     * Scans the recordings concurrently, the result keeps the order of the provided recordings.
+     */
+    public Map<Path, ChunkScan> verify(List<Path> recordings) throws IOException {
+        Map<Path, ChunkScan> result = new LinkedHashMap<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+            List<Future<ChunkScan>> futures = new ArrayList<>();
+            for (Path recording : recordings) {
+                futures.add(executor.submit(() -> scan(recording)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    result.put(recordings.get(i), futures.get(i).get());
+                } catch (ExecutionException e) {
+                    result.put(recordings.get(i), new ChunkScan(
+                            List.of(), 0, -1, "Cannot read the recording: " + e.getCause().getMessage()));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Verification was interrupted", e);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Truncates the recording to the end of the last finished chunk found by the scan.
+     *
+     * @throws IOException if the recording was modified since the scan, or cannot be truncated
+     */
+    public static void repair(Path recording, ChunkScan scan) throws IOException {
+        if (!scan.repairable()) {
+            throw new IOException("Recording does not contain any finished chunk: " + recording);
+        }
+
+        try (FileChannel channel = FileChannel.open(recording, StandardOpenOption.WRITE)) {
+            if (channel.size() != scan.fileSize()) {
+                throw new IOException("Recording was modified since the verification: expected_size="
+                        + scan.fileSize() + " current_size=" + channel.size());
+            }
+            channel.truncate(scan.finishedEnd());
+            channel.force(true);
+        }
+    }
+
+    private static ChunkScan scan(Path recording) throws IOException {
+        try (FileChannel channel = FileChannel.open(recording, StandardOpenOption.READ)) {
+            return JfrChunks.scan(channel);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.metrics;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+
+/**
+ * Append-only log of the durations of the {@code init} command in the workspace. Every invocation appends
+ * a single line {@code <timestamp-millis> <duration-micros>}, the log is then incrementally folded into
+ * the latency histogram, only the lines appended since the previous update are read.
+ */
+public class InitLatencyLog {
+
+    public static final String LOG_FILENAME = ".init-latency.log";
+
+    /* Upper bounds of the histogram buckets in microseconds */
+    static final long[] BUCKET_BOUNDS_MICROS = {
+            1_000, 2_500, 5_000, 10_000, 25_000, 50_000, 100_000, 250_000, 500_000, 1_000_000, 2_500_000, 5_000_000};
+
+    private final Path logFile;
+
+    /* Counts of the individual buckets (not cumulative), the last bucket is +Inf */
+    private final long[] bucketCounts = new long[BUCKET_BOUNDS_MICROS.length + 1];
+    private long count;
+    private long sumMicros;
+    private long readOffset;
+
+    public InitLatencyLog(Path workspacePath) {
+        this.logFile = workspacePath.resolve(LOG_FILENAME);
+    }
+
+    public static void append(Path workspacePath, Instant timestamp, Duration duration) throws IOException {
+        String line = timestamp.toEpochMilli() + " " + duration.toNanos() / 1_000 + "\n";
+        Files.writeString(workspacePath.resolve(LOG_FILENAME), line,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    /**
+     * Reads the lines appended since the last update and adds them to the histogram. If the log was
+     * truncated or removed in the meantime, the histogram is reset.
+     */
+    public void update() throws IOException {
+        if (!Files.exists(logFile)) {
+            reset();
+            return;
+        }
+
+        try (FileChannel channel = FileChannel.open(logFile, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < readOffset) {
+                reset();
+            }
+            if (size == readOffset) {
+                return;
+            }
+
+            ByteBuffer buffer = ByteBuffer.allocate((int) (size - readOffset));
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, readOffset + buffer.position()) < 0) {
+                    break;
+                }
+            }
+
+            // Only complete lines, the last one can be still being written
+            byte[] content = buffer.array();
+            int length = buffer.position();
+            while (length > 0 && content[length - 1] != '\n') {
+                length--;
+            }
+
+            for (String line : new String(content, 0, length, StandardCharsets.UTF_8).split("\n")) {
+                addLine(line);
+            }
+            readOffset += length;
+        }
+    }
+
+    private void addLine(String line) {
+        String[] parts = line.trim().split(" ");
+        if (parts.length != 2) {
+            return;
+        }
+
+        try {
+            long micros = Long.parseLong(parts[1]);
+            int bucket = 0;
+            while (bucket < BUCKET_BOUNDS_MICROS.length && micros > BUCKET_BOUNDS_MICROS[bucket]) {
+                bucket++;
+            }
+            bucketCounts[bucket]++;
+            count++;
+            sumMicros += micros;
+        } catch (NumberFormatException e) {
+            // Skip the malformed line
+        }
+    }
+
+    private void reset() {
+        Arrays.fill(bucketCounts, 0);
+        count = 0;
+        sumMicros = 0;
+        readOffset = 0;
+    }
+
+    long[] bucketCounts() {
+        return bucketCounts;
+    }
+
+    long count() {
+        return count;
+    }
+
+    long sumMicros() {
+        return sumMicros;
+    }
+}
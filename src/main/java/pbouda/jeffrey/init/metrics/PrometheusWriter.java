@@ -0,0 +1,68 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.metrics;
+
+import java.util.List;
+
+/**
+ * Minimal writer of the Prometheus text exposition format (version 0.0.4).
+ */
+class PrometheusWriter {
+
+    private final StringBuilder output = new StringBuilder();
+
+    void family(String name, String type, String help) {
+        output.append("# HELP ").append(name).append(' ').append(help).append('\n');
+        output.append("# TYPE ").append(name).append(' ').append(type).append('\n');
+    }
+
+    void sample(String name, List<String> labels, long value) {
+        appendName(name, labels);
+        output.append(value).append('\n');
+    }
+
+    void sample(String name, List<String> labels, double value) {
+        appendName(name, labels);
+        output.append(value).append('\n');
+    }
+
+    private void appendName(String name, List<String> labels) {
+        output.append(name);
+        if (!labels.isEmpty()) {
+            output.append('{');
+            for (int i = 0; i < labels.size(); i += 2) {
+                if (i > 0) {
+                    output.append(',');
+                }
+                output.append(labels.get(i)).append("=\"").append(escape(labels.get(i + 1))).append('"');
+            }
+            output.append('}');
+        }
+        output.append(' ');
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    @Override
+    public String toString() {
+        return output.toString();
+    }
+}
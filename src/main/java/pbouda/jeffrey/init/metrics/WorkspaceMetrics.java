@@ -0,0 +1,308 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.metrics;
+
+import pbouda.jeffrey.init.FileSystemRepository;
+import pbouda.jeffrey.init.ProfilerSettingsResolver;
+import pbouda.jeffrey.init.model.RemoteSession;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Statistics of all workspaces in the workspaces directory exported in Prometheus text format.
+ * <p>
+ * The statistics are kept between the scrapes and refreshed incrementally. The lists of projects and sessions
+ * are re-read only when the modification time of the parent directory changes. The files of the session are
+ * re-read only when the session directory changes, or when the session is active (it was changed within the
+ * active-session window), finished sessions cost a single {@code stat} per scrape.
+ */
+public class WorkspaceMetrics {
+
+    private static final long MICROS_PER_SECOND = 1_000_000;
+
+    private static final class WorkspaceState {
+        private final Map<Path, ProjectState> projects = new TreeMap<>();
+        private final InitLatencyLog initLatency;
+        private long dirModified = -1;
+        private long settingsDirModified = -1;
+        private int settingsFiles;
+        private long settingsGeneration;
+
+        private WorkspaceState(Path workspacePath) {
+            this.initLatency = new InitLatencyLog(workspacePath);
+        }
+    }
+
+    private static final class ProjectState {
+        private final Map<Path, SessionState> sessions = new HashMap<>();
+        private long dirModified = -1;
+    }
+
+    private static final class SessionState {
+        private long createdAt;
+        private boolean createdAtResolved;
+        private long dirModified = -1;
+        private long lastChange;
+        private long bytes;
+    }
+
+    private final Path workspacesPath;
+    private final Clock clock;
+    private final Duration activeSessionWindow;
+    private final FileSystemRepository repository;
+
+    private final Map<Path, WorkspaceState> workspaces = new TreeMap<>();
+
+    public WorkspaceMetrics(Path workspacesPath, Clock clock, Duration activeSessionWindow) {
+        this.workspacesPath = workspacesPath;
+        this.clock = clock;
+        this.activeSessionWindow = activeSessionWindow;
+        this.repository = new FileSystemRepository(clock);
+    }
+
+    /**
+     * Refreshes the statistics and returns them in Prometheus text format.
+     */
+    public synchronized String scrape() throws IOException {
+        refresh();
+        return format();
+    }
+
+    private void refresh() throws IOException {
+        List<Path> currentWorkspaces = listDirectories(workspacesPath);
+        workspaces.keySet().retainAll(currentWorkspaces);
+        for (Path workspacePath : currentWorkspaces) {
+            WorkspaceState workspace = workspaces.computeIfAbsent(workspacePath, WorkspaceState::new);
+
+            long dirModified = lastModified(workspacePath);
+            if (dirModified != workspace.dirModified) {
+                List<Path> currentProjects = listDirectories(workspacePath);
+                workspace.projects.keySet().retainAll(currentProjects);
+                for (Path projectPath : currentProjects) {
+                    workspace.projects.computeIfAbsent(projectPath, path -> new ProjectState());
+                }
+                workspace.dirModified = dirModified;
+            }
+
+            for (Map.Entry<Path, ProjectState> entry : workspace.projects.entrySet()) {
+                refreshProject(entry.getKey(), entry.getValue());
+            }
+
+            refreshSettings(workspacePath, workspace);
+            workspace.initLatency.update();
+        }
+    }
+
+    private void refreshProject(Path projectPath, ProjectState project) throws IOException {
+        long dirModified = lastModified(projectPath);
+        if (dirModified != project.dirModified) {
+            List<Path> currentSessions = listDirectories(projectPath);
+            project.sessions.keySet().retainAll(currentSessions);
+            for (Path sessionPath : currentSessions) {
+                project.sessions.computeIfAbsent(sessionPath, path -> new SessionState());
+            }
+            project.dirModified = dirModified;
+        }
+
+        long now = clock.millis();
+        for (Map.Entry<Path, SessionState> entry : project.sessions.entrySet()) {
+            SessionState session = entry.getValue();
+            if (!session.createdAtResolved) {
+                resolveCreatedAt(entry.getKey(), session);
+            }
+
+            long sessionDirModified = lastModified(entry.getKey());
+            boolean active = now - session.lastChange < activeSessionWindow.toMillis();
+            if (sessionDirModified != session.dirModified || active) {
+                refreshSession(entry.getKey(), session);
+                session.dirModified = sessionDirModified;
+            }
+        }
+    }
+
+    /**
+     * The session directory is created before its session info is written, the modification time of the directory
+     * is used until the session info can be read, and it's attempted again in the next refresh.
+     */
+    private void resolveCreatedAt(Path sessionPath, SessionState session) {
+        try {
+            Optional<RemoteSession> sessionInfo = repository.findSession(sessionPath);
+            if (sessionInfo.isPresent()) {
+                session.createdAt = sessionInfo.get().createdAt();
+                session.createdAtResolved = true;
+                return;
+            }
+        } catch (RuntimeException e) {
+            // The session info is being written right now
+        }
+        session.createdAt = lastModifiedQuietly(sessionPath);
+    }
+
+    private static void refreshSession(Path sessionPath, SessionState session) throws IOException {
+        long bytes = 0;
+        long lastChange = 0;
+        List<Path> files;
+        try (var stream = Files.walk(sessionPath)) {
+            files = stream.toList();
+        }
+        for (Path file : files) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                if (attributes.isRegularFile()) {
+                    bytes += attributes.size();
+                }
+                lastChange = Math.max(lastChange, attributes.lastModifiedTime().toMillis());
+            } catch (IOException e) {
+                // The file was removed in the meantime
+            }
+        }
+        session.bytes = bytes;
+        session.lastChange = lastChange;
+    }
+
+    private static void refreshSettings(Path workspacePath, WorkspaceState workspace) throws IOException {
+        Path settingsDir = workspacePath.resolve(ProfilerSettingsResolver.WORKSPACE_SETTINGS_DIR);
+        if (!Files.isDirectory(settingsDir)) {
+            workspace.settingsDirModified = -1;
+            workspace.settingsFiles = 0;
+            workspace.settingsGeneration = 0;
+            return;
+        }
+
+        long dirModified = lastModified(settingsDir);
+        if (dirModified != workspace.settingsDirModified) {
+            List<Path> settingsFiles = ProfilerSettingsResolver.getSettingsFiles(settingsDir);
+            workspace.settingsFiles = settingsFiles.size();
+            workspace.settingsGeneration = settingsFiles.isEmpty()
+                    ? 0 : ProfilerSettingsResolver.settingsTimestamp(settingsFiles.getFirst()).getEpochSecond();
+            workspace.settingsDirModified = dirModified;
+        }
+    }
+
+    private String format() {
+        PrometheusWriter writer = new PrometheusWriter();
+        long now = clock.millis();
+
+        writer.family("jeffrey_project_sessions", "gauge", "Number of sessions in the project");
+        forEachProject((workspace, project, state) ->
+                writer.sample("jeffrey_project_sessions", labels(workspace, project), state.sessions.size()));
+
+        writer.family("jeffrey_project_bytes", "gauge", "Size of all sessions in the project in bytes");
+        forEachProject((workspace, project, state) ->
+                writer.sample("jeffrey_project_bytes", labels(workspace, project), projectBytes(state)));
+
+        writer.family("jeffrey_project_newest_session_age_seconds", "gauge", "Age of the newest session in the project");
+        forEachProject((workspace, project, state) -> state.sessions.values().stream()
+                .mapToLong(session -> session.createdAt)
+                .max()
+                .ifPresent(createdAt -> writer.sample(
+                        "jeffrey_project_newest_session_age_seconds", labels(workspace, project), (now - createdAt) / 1000.0)));
+
+        writer.family("jeffrey_workspace_bytes", "gauge", "Size of all sessions in the workspace in bytes");
+        workspaces.forEach((path, state) -> writer.sample("jeffrey_workspace_bytes", labels(path),
+                state.projects.values().stream().mapToLong(WorkspaceMetrics::projectBytes).sum()));
+
+        writer.family("jeffrey_workspace_settings_files", "gauge", "Number of profiler settings files in the workspace");
+        workspaces.forEach((path, state) ->
+                writer.sample("jeffrey_workspace_settings_files", labels(path), state.settingsFiles));
+
+        writer.family("jeffrey_workspace_settings_generation", "gauge", "Timestamp (epoch seconds) of the newest profiler settings file");
+        workspaces.forEach((path, state) ->
+                writer.sample("jeffrey_workspace_settings_generation", labels(path), state.settingsGeneration));
+
+        writer.family("jeffrey_init_duration_seconds", "histogram", "Duration of the init command in the workspace");
+        workspaces.forEach((path, state) -> {
+            InitLatencyLog latency = state.initLatency;
+            long cumulative = 0;
+            long[] buckets = latency.bucketCounts();
+            for (int i = 0; i < buckets.length; i++) {
+                cumulative += buckets[i];
+                String le = i < InitLatencyLog.BUCKET_BOUNDS_MICROS.length
+                        ? Double.toString((double) InitLatencyLog.BUCKET_BOUNDS_MICROS[i] / MICROS_PER_SECOND)
+                        : "+Inf";
+                List<String> labels = new ArrayList<>(labels(path));
+                labels.add("le");
+                labels.add(le);
+                writer.sample("jeffrey_init_duration_seconds_bucket", labels, cumulative);
+            }
+            writer.sample("jeffrey_init_duration_seconds_sum", labels(path), (double) latency.sumMicros() / MICROS_PER_SECOND);
+            writer.sample("jeffrey_init_duration_seconds_count", labels(path), latency.count());
+        });
+
+        return writer.toString();
+    }
+
+    @FunctionalInterface
+    private interface ProjectConsumer {
+        void accept(Path workspacePath, Path projectPath, ProjectState state);
+    }
+
+    private void forEachProject(ProjectConsumer consumer) {
+        workspaces.forEach((workspacePath, workspace) ->
+                workspace.projects.forEach((projectPath, state) -> consumer.accept(workspacePath, projectPath, state)));
+    }
+
+    private static long projectBytes(ProjectState project) {
+        return project.sessions.values().stream().mapToLong(session -> session.bytes).sum();
+    }
+
+    private static List<String> labels(Path workspacePath) {
+        return List.of("workspace", workspacePath.getFileName().toString());
+    }
+
+    private static List<String> labels(Path workspacePath, Path projectPath) {
+        return List.of("workspace", workspacePath.getFileName().toString(), "project", projectPath.getFileName().toString());
+    }
+
+    private static List<Path> listDirectories(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (var stream = Files.list(dir)) {
+            return stream
+                    .filter(Files::isDirectory)
+                    .filter(path -> !path.getFileName().toString().startsWith("."))
+                    .sorted()
+                    .toList();
+        }
+    }
+
+    private static long lastModified(Path path) throws IOException {
+        return Files.getLastModifiedTime(path).toMillis();
+    }
+
+    private static long lastModifiedQuietly(Path path) {
+        try {
+            return lastModified(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.model;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Request to initialize a new session of the project, see {@code SessionInitializer}. Exactly one of
+ * {@code jeffreyHome} and {@code workspacesDir} must be provided.
+ *
+ * @param jeffreyHome         Jeffrey HOME directory, the workspaces are placed into its 'workspaces' directory
+ * @param workspacesDir       directory of the workspaces
+ * @param workspaceId         ID of the workspace the project belongs to
+ * @param projectName         unique name of the project (alphanumeric characters, underscores and dashes)
+ * @param projectLabel        human-readable label of the project
+ * @param attributes          attributes of the project, used only when the project is created
+ * @param profilerPath        custom path to the profiler agent
+ * @param profilerConfig      custom profiler configuration, it has priority over the workspace settings
+ * @param repositoryType      type of the repository of the project
+ * @param perfCountersEnabled enables saving of the performance counters into the session
+ * @param heapDumpEnabled     enables heap dump on OutOfMemoryError into the session
+ */
+public record InitRequest(
+        Path jeffreyHome,
+        Path workspacesDir,
+        String workspaceId,
+        String projectName,
+        String projectLabel,
+        Map<String, String> attributes,
+        String profilerPath,
+        String profilerConfig,
+        RepositoryType repositoryType,
+        boolean perfCountersEnabled,
+        boolean heapDumpEnabled) {
+
+    public InitRequest {
+        attributes = attributes == null ? Map.of() : Map.copyOf(attributes);
+        repositoryType = repositoryType == null ? RepositoryType.ASYNC_PROFILER : repositoryType;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static class Builder {
+        private Path jeffreyHome;
+        private Path workspacesDir;
+        private String workspaceId;
+        private String projectName;
+        private String projectLabel;
+        private Map<String, String> attributes = Map.of();
+        private String profilerPath;
+        private String profilerConfig;
+        private RepositoryType repositoryType = RepositoryType.ASYNC_PROFILER;
+        private boolean perfCountersEnabled;
+        private boolean heapDumpEnabled;
+
+        public Builder setJeffreyHome(Path jeffreyHome) {
+            this.jeffreyHome = jeffreyHome;
+            return this;
+        }
+
+        public Builder setWorkspacesDir(Path workspacesDir) {
+            this.workspacesDir = workspacesDir;
+            return this;
+        }
+
+        public Builder setWorkspaceId(String workspaceId) {
+            this.workspaceId = workspaceId;
+            return this;
+        }
+
+        public Builder setProjectName(String projectName) {
+            this.projectName = projectName;
+            return this;
+        }
+
+        public Builder setProjectLabel(String projectLabel) {
+            this.projectLabel = projectLabel;
+            return this;
+        }
+
+        public Builder setAttributes(Map<String, String> attributes) {
+            this.attributes = attributes;
+            return this;
+        }
+
+        public Builder setProfilerPath(String profilerPath) {
+            this.profilerPath = profilerPath;
+            return this;
+        }
+
+        public Builder setProfilerConfig(String profilerConfig) {
+            this.profilerConfig = profilerConfig;
+            return this;
+        }
+
+        public Builder setRepositoryType(RepositoryType repositoryType) {
+            this.repositoryType = repositoryType;
+            return this;
+        }
+
+        public Builder setPerfCountersEnabled(boolean enabled) {
+            this.perfCountersEnabled = enabled;
+            return this;
+        }
+
+        public Builder setHeapDumpEnabled(boolean enabled) {
+            this.heapDumpEnabled = enabled;
+            return this;
+        }
+
+        public InitRequest build() {
+            return new InitRequest(
+                    jeffreyHome,
+                    workspacesDir,
+                    workspaceId,
+                    projectName,
+                    projectLabel,
+                    attributes,
+                    profilerPath,
+                    profilerConfig,
+                    repositoryType,
+                    perfCountersEnabled,
+                    heapDumpEnabled);
+        }
+    }
+}
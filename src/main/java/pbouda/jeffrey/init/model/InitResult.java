@@ -0,0 +1,46 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.model;
+
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * Result of the initialized session.
+ *
+ * @param jeffreyHome      Jeffrey HOME directory, {@code null} if the workspaces directory was provided directly
+ * @param projectCreated   {@code true} if the project did not exist before and was created by this initialization
+ * @param envFile          ENV file in the project directory with the variables to source in the shell
+ * @param profilerSettings resolved profiler settings including the enabled features
+ * @param variables        variables written into the ENV file in the same order
+ */
+public record InitResult(
+        String workspaceId,
+        String projectId,
+        String sessionId,
+        boolean projectCreated,
+        Path jeffreyHome,
+        Path workspacesPath,
+        Path workspacePath,
+        Path projectPath,
+        Path sessionPath,
+        Path envFile,
+        String profilerSettings,
+        Map<String, String> variables) {
+}
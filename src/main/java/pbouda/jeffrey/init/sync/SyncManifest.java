@@ -0,0 +1,40 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.sync;
+
+import java.util.Map;
+
+/**
+ * State of the target directory after the last synchronization, persisted in the target directory.
+ *
+ * @param files files synchronized into the target directory, keyed by the path relative to the workspace
+ */
+public record SyncManifest(Map<String, FileEntry> files) {
+
+    /**
+     * @param size         size of the file copied to the target
+     * @param lastModified last modification time of the source file in millis
+     * @param stableSize   size of the prefix which is not going to be modified anymore (the end of the last
+     *                     finished chunk for JFR files, the whole file for others)
+     * @param hash         CRC32C of the block right before the stable size, used to verify that the source
+     *                     file was only appended since the last synchronization
+     */
+    public record FileEntry(long size, long lastModified, long stableSize, long hash) {
+    }
+}
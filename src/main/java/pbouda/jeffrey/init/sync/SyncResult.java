@@ -0,0 +1,38 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.sync;
+
+import java.util.List;
+
+/**
+ * @param dataFailures     data files that failed to be transferred, metadata are not published if any
+ * @param metadataFailures metadata files that failed to be published after all data files were transferred
+ */
+public record SyncResult(
+        int copiedFiles,
+        int appendedFiles,
+        int unchangedFiles,
+        long transferredBytes,
+        List<String> dataFailures,
+        List<String> metadataFailures) {
+
+    public boolean failed() {
+        return !dataFailures.isEmpty() || !metadataFailures.isEmpty();
+    }
+}
@@ -0,0 +1,273 @@
+/*
+ * Jeffrey
+ * Copyright (C) 2025 Petr Bouda
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Affero General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Affero General Public License for more details.
+ *
+ * You should have received a copy of the GNU Affero General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package pbouda.jeffrey.init.sync;
+
+import pbouda.jeffrey.init.FileSystemUtils;
+import pbouda.jeffrey.init.Json;
+import pbouda.jeffrey.init.jfr.JfrChunks;
+import pbouda.jeffrey.init.sync.SyncManifest.FileEntry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32C;
+
+/**
+ * Incrementally replicates the workspace directory into the target directory. The state of the previous
+ * synchronization is kept in the manifest file in the target directory, only new and changed files
+ * are copied, grown files are only tail-appended if their already synchronized part is unchanged.
+ * <p>
+ * Data files (recordings, heap dumps, ...) are transferred concurrently first, the metadata files
+ * (hidden files such as {@code .project-info.json}, {@code .session-info.json}, {@code .settings/*})
+ * are published afterward, and the manifest at the very end. Therefore, the metadata in the target
+ * directory never refer to the data that has not been copied yet.
+ */
+public class WorkspaceSynchronizer {
+
+    public static final String MANIFEST_FILENAME = ".jeffrey-sync-manifest.json";
+
+    private static final String TEMP_FILE_SUFFIX = ".sync-tmp";
+    private static final int HASH_BLOCK_SIZE = 64 * 1024;
+
+    private enum Action {
+        COPIED, APPENDED, UNCHANGED
+    }
+
+    private record Outcome(String relativePath, FileEntry entry, Action action, long transferredBytes) {
+    }
+
+    private final Path sourcePath;
+    private final Path targetPath;
+    private final int parallelism;
+
+    public WorkspaceSynchronizer(Path sourcePath, Path targetPath, int parallelism) {
+        this.sourcePath = sourcePath;
+        this.targetPath = targetPath;
+        this.parallelism = parallelism;
+    }
+
+    public SyncResult sync() throws IOException {
+        Files.createDirectories(targetPath);
+        Map<String, FileEntry> entries = new HashMap<>(readManifest().files());
+
+        List<Path> dataFiles = new ArrayList<>();
+        List<Path> metadataFiles = new ArrayList<>();
+        try (var stream = Files.walk(sourcePath)) {
+            stream.filter(Files::isRegularFile)
+                    .filter(WorkspaceSynchronizer::isNotSyncFile)
+                    .forEach(file -> (isMetadata(sourcePath.relativize(file)) ? metadataFiles : dataFiles).add(file));
+        }
+
+        // Files removed from the workspace are forgotten, the manifest contains only the existing files
+        Set<String> sourceFiles = new HashSet<>();
+        dataFiles.forEach(file -> sourceFiles.add(relativePath(file)));
+        metadataFiles.forEach(file -> sourceFiles.add(relativePath(file)));
+        entries.keySet().retainAll(sourceFiles);
+
+        List<Outcome> outcomes = new ArrayList<>();
+        List<String> dataFailures = new ArrayList<>();
+        List<String> metadataFailures = new ArrayList<>();
+
+        try (ExecutorService executor = Executors.newFixedThreadPool(parallelism)) {
+            List<Future<Outcome>> futures = new ArrayList<>();
+            for (Path file : dataFiles) {
+                FileEntry previous = entries.get(relativePath(file));
+                futures.add(executor.submit(() -> syncFile(file, previous)));
+            }
+
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    outcomes.add(futures.get(i).get());
+                } catch (ExecutionException e) {
+                    dataFailures.add(dataFiles.get(i) + " error=" + e.getCause().getMessage());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Synchronization was interrupted", e);
+                }
+            }
+        }
+
+        // Metadata are published only when all the data they can refer to are already in place
+        if (dataFailures.isEmpty()) {
+            for (Path file : metadataFiles) {
+                try {
+                    outcomes.add(syncFile(file, entries.get(relativePath(file))));
+                } catch (IOException e) {
+                    metadataFailures.add(file + " error=" + e.getMessage());
+                }
+            }
+        }
+
+        int copied = 0;
+        int appended = 0;
+        int unchanged = 0;
+        long transferredBytes = 0;
+        for (Outcome outcome : outcomes) {
+            entries.put(outcome.relativePath(), outcome.entry());
+            transferredBytes += outcome.transferredBytes();
+            switch (outcome.action()) {
+                case COPIED -> copied++;
+                case APPENDED -> appended++;
+                case UNCHANGED -> unchanged++;
+            }
+        }
+
+        writeManifest(new SyncManifest(entries));
+        return new SyncResult(copied, appended, unchanged, transferredBytes, dataFailures, metadataFailures);
+    }
+
+    private Outcome syncFile(Path sourceFile, FileEntry previous) throws IOException {
+        String relativePath = relativePath(sourceFile);
+        Path targetFile = targetPath.resolve(relativePath);
+
+        BasicFileAttributes attributes = Files.readAttributes(sourceFile, BasicFileAttributes.class);
+        long size = attributes.size();
+        long lastModified = attributes.lastModifiedTime().toMillis();
+
+        boolean targetMatchesManifest = previous != null
+                && Files.isRegularFile(targetFile)
+                && Files.size(targetFile) == previous.size();
+
+        if (targetMatchesManifest) {
+            if (previous.size() == size && previous.lastModified() == lastModified) {
+                return new Outcome(relativePath, previous, Action.UNCHANGED, 0);
+            }
+
+            if (size > previous.size() && blockHash(sourceFile, previous.stableSize()) == previous.hash()) {
+                long transferred = append(sourceFile, targetFile, previous.stableSize(), size);
+                Files.setLastModifiedTime(targetFile, attributes.lastModifiedTime());
+                FileEntry entry = createEntry(targetFile, size, lastModified);
+                return new Outcome(relativePath, entry, Action.APPENDED, transferred);
+            }
+        }
+
+        long transferred = copy(sourceFile, targetFile, size);
+        Files.setLastModifiedTime(targetFile, attributes.lastModifiedTime());
+        FileEntry entry = createEntry(targetFile, size, lastModified);
+        return new Outcome(relativePath, entry, Action.COPIED, transferred);
+    }
+
+    /**
+     * Copies the file into the temporary file which atomically replaces the target file,
+     * the target never contains a partially copied file.
+     */
+    private static long copy(Path sourceFile, Path targetFile, long size) throws IOException {
+        Files.createDirectories(targetFile.getParent());
+        Path tempFile = targetFile.resolveSibling("." + targetFile.getFileName() + TEMP_FILE_SUFFIX);
+        try (FileChannel source = FileChannel.open(sourceFile, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(tempFile,
+                     StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            FileSystemUtils.transfer(source, target, 0, size);
+        }
+        Files.move(tempFile, targetFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return size;
+    }
+
+    /**
+     * Appends the content of the source file from the given position into the target file.
+     * The already synchronized stable part of the target file is left untouched.
+     */
+    private static long append(Path sourceFile, Path targetFile, long position, long size) throws IOException {
+        try (FileChannel source = FileChannel.open(sourceFile, StandardOpenOption.READ);
+             FileChannel target = FileChannel.open(targetFile, StandardOpenOption.WRITE)) {
+            target.position(position);
+            FileSystemUtils.transfer(source, target, position, size - position);
+            target.truncate(size);
+        }
+        return size - position;
+    }
+
+    private static FileEntry createEntry(Path targetFile, long size, long lastModified) throws IOException {
+        long stableSize = size;
+        if (targetFile.getFileName().toString().endsWith(JfrChunks.JFR_EXTENSION)) {
+            try (FileChannel channel = FileChannel.open(targetFile, StandardOpenOption.READ)) {
+                stableSize = JfrChunks.finishedChunksEnd(channel);
+            }
+        }
+        return new FileEntry(size, lastModified, stableSize, blockHash(targetFile, stableSize));
+    }
+
+    /**
+     * Calculates CRC32C of the block ending at the given position.
+     */
+    private static long blockHash(Path file, long end) throws IOException {
+        long start = Math.max(0, end - HASH_BLOCK_SIZE);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (end - start));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, start + buffer.position()) < 0) {
+                    // The file is shorter than expected, it cannot match the stored hash
+                    return -1;
+                }
+            }
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(buffer.flip());
+        return crc.getValue();
+    }
+
+    private String relativePath(Path sourceFile) {
+        return sourcePath.relativize(sourceFile).toString();
+    }
+
+    private static boolean isMetadata(Path relativePath) {
+        for (Path element : relativePath) {
+            if (element.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isNotSyncFile(Path file) {
+        String filename = file.getFileName().toString();
+        return !filename.equals(MANIFEST_FILENAME) && !filename.endsWith(TEMP_FILE_SUFFIX);
+    }
+
+    private SyncManifest readManifest() throws IOException {
+        Path manifestFile = targetPath.resolve(MANIFEST_FILENAME);
+        if (Files.exists(manifestFile)) {
+            return Json.fromString(Files.readString(manifestFile), SyncManifest.class);
+        }
+        return new SyncManifest(Map.of());
+    }
+
+    private void writeManifest(SyncManifest manifest) throws IOException {
+        Path manifestFile = targetPath.resolve(MANIFEST_FILENAME);
+        Path tempFile = manifestFile.resolveSibling(MANIFEST_FILENAME + TEMP_FILE_SUFFIX);
+        Files.writeString(tempFile, Json.toString(manifest));
+        Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}